@@ -1,10 +1,15 @@
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.IntConsumer;
 
 /**
  * Adjancency Map implementation of the Graph interface
  * Edge labels are stored in nested maps: { v1 -> { v2 -> edge } }
  * Inspired by and loosely based on Goodrich & Tamassia
+ * Alongside the maps, each vertex has a dense int id and rows of neighbor ids, so the int traversal
+ * methods run on arrays. Removing a vertex gives its id to the vertex with the highest id
  *
  * @author Chris Bailey-Kellogg, Dartmouth CS 10, Spring 2015
  */
@@ -12,6 +17,12 @@ import java.util.Map;
 public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
     protected Map<V, Map<V, E>> out;		// from v1 to v2: { v1 -> { v2 -> edge } }
     protected Map<V, Map<V, E>> in;		// to v1 from v2: { v1 -> { v2 -> edge } }
+    protected ArrayList<V> byId = new ArrayList<V>();		// id -> vertex
+    protected Map<V, Integer> ids = new HashMap<V, Integer>();	// vertex -> id
+    protected int[][] outIds = new int[16][], inIds = new int[16][];	// neighbor ids by vertex id, in no order
+    protected int[] outCounts = new int[16], inCounts = new int[16];	// used length of each row
+
+    private static final int[] EMPTY = new int[0];
 
     /**
      * Default constructor, creating an empty graph
@@ -68,12 +79,29 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
         if (!out.keySet().contains(v)) {
             out.put(v, new HashMap<V, E>());		// edges from v
             in.put(v, new HashMap<V, E>());		// edges to v
+            int id = byId.size();
+            if (id == outIds.length) {
+                outIds = Arrays.copyOf(outIds, id * 2);
+                inIds = Arrays.copyOf(inIds, id * 2);
+                outCounts = Arrays.copyOf(outCounts, id * 2);
+                inCounts = Arrays.copyOf(inCounts, id * 2);
+            }
+            byId.add(v);
+            ids.put(v, id);
+            outIds[id] = EMPTY;
+            inIds[id] = EMPTY;
         }
     }
 
     public void insertDirected(V u, V v, E e) {
+        boolean added = !out.get(u).containsKey(v);
         out.get(u).put(v, e);
         in.get(v).put(u, e);
+        if (added) {
+            int a = ids.get(u), b = ids.get(v);
+            outIds[a] = append(outIds[a], outCounts[a]++, b);
+            inIds[b] = append(inIds[b], inCounts[b]++, a);
+        }
     }
 
     public void insertUndirected(V u, V v, E e) {
@@ -84,20 +112,57 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
 
     public void removeVertex(V v) {
         if (!out.keySet().contains(v)) return;
+        int id = ids.get(v);
         // remove v from all adjacency lists for other vertices
         for (V u : inNeighbors(v)) { // u has an edge to v
             out.get(u).remove(v);
+            int a = ids.get(u);
+            outCounts[a] = delete(outIds[a], outCounts[a], id);
         }
         for (V w : outNeighbors(v)) { // w has an edge from v
             in.get(w).remove(v);
+            int b = ids.get(w);
+            inCounts[b] = delete(inIds[b], inCounts[b], id);
         }
         in.remove(v);
         out.remove(v);
+
+        // keep ids dense: the last vertex takes over v's id
+        ids.remove(v);
+        int last = byId.size() - 1;
+        if (id != last) {
+            V moved = byId.get(last);
+            byId.set(id, moved);
+            ids.put(moved, id);
+            outIds[id] = outIds[last];
+            outCounts[id] = outCounts[last];
+            inIds[id] = inIds[last];
+            inCounts[id] = inCounts[last];
+            for (int k = 0; k < outCounts[id]; k++) {
+                int w = outIds[id][k];
+                rename(inIds[w == last ? id : w], inCounts[w == last ? id : w], last, id);
+            }
+            for (int k = 0; k < inCounts[id]; k++) {
+                int u = inIds[id][k];
+                rename(outIds[u == last ? id : u], outCounts[u == last ? id : u], last, id);
+            }
+        }
+        byId.remove(last);
+        outIds[last] = null;
+        inIds[last] = null;
+        outCounts[last] = 0;
+        inCounts[last] = 0;
     }
 
     public void removeDirected(V u, V v) {
+        boolean removed = out.get(u).containsKey(v);
         in.get(v).remove(u);
         out.get(u).remove(v);
+        if (removed) {
+            int a = ids.get(u), b = ids.get(v);
+            outCounts[a] = delete(outIds[a], outCounts[a], b);
+            inCounts[b] = delete(inIds[b], inCounts[b], a);
+        }
     }
 
     public void removeUndirected(V u, V v) {
@@ -106,6 +171,73 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
         removeDirected(v, u);
     }
 
+    public int vertexIdBound() {
+        return byId.size();
+    }
+
+    public int vertexId(V v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    public V vertexAt(int id) {
+        return byId.get(id);
+    }
+
+    public int outDegreeOf(int id) {
+        return outCounts[id];
+    }
+
+    public int outNeighborAt(int id, int k) {
+        return outIds[id][k];
+    }
+
+    public int inDegreeOf(int id) {
+        return inCounts[id];
+    }
+
+    public int inNeighborAt(int id, int k) {
+        return inIds[id][k];
+    }
+
+    public void forEachOutNeighbor(int id, IntConsumer action) {
+        int[] row = outIds[id];
+        for (int k = 0, count = outCounts[id]; k < count; k++) action.accept(row[k]);
+    }
+
+    public void forEachInNeighbor(int id, IntConsumer action) {
+        int[] row = inIds[id];
+        for (int k = 0, count = inCounts[id]; k < count; k++) action.accept(row[k]);
+    }
+
+    /** Puts x at index size of the row, growing it if full, and returns the row */
+    private static int[] append(int[] row, int size, int x) {
+        if (size == row.length) row = Arrays.copyOf(row, Math.max(4, size * 2));
+        row[size] = x;
+        return row;
+    }
+
+    /** Removes one x from the first size entries of the row by moving the last entry into its place; returns the new size */
+    private static int delete(int[] row, int size, int x) {
+        for (int k = 0; k < size; k++) {
+            if (row[k] == x) {
+                row[k] = row[size - 1];
+                return size - 1;
+            }
+        }
+        return size;
+    }
+
+    /** Replaces one from with to in the first size entries of the row */
+    private static void rename(int[] row, int size, int from, int to) {
+        for (int k = 0; k < size; k++) {
+            if (row[k] == from) {
+                row[k] = to;
+                return;
+            }
+        }
+    }
+
     /**
      * Returns a string representation of the vertex and edge lists.
      */
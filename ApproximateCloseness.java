@@ -0,0 +1,149 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Top k vertices by average separation, estimated by sampling (Eppstein & Wang) and then verified
+ * The estimate of a vertex is its average distance to a few uniformly sampled sources of the center's
+ * component, so a handful of BFS runs estimate every vertex at once. By Hoeffding's inequality, with
+ * probability 1 - DELTA every estimate is within diameter * sqrt(ln(2m / DELTA) / 2s) of the true
+ * average, for m vertices and s samples; the diameter is bounded by twice the smallest eccentricity
+ * seen. Asking for a relative error epsilon picks s = ln(2m / DELTA) / 2 epsilon^2 samples, capped at m,
+ * where the answer is exact
+ * The candidates whose lower bound could still beat the k-th best upper bound are then measured
+ * exactly, the best estimates first; the worst-case bound is loose in small-world graphs, so at most
+ * k + k^(2/3) ln^(1/3) m of them are, which Okamoto, Chen & Li show is enough with high probability
+ *
+ * @param <V>	the type of vertices
+ * @param <E>	the type of edge labels
+ */
+public class ApproximateCloseness<V,E> {
+    public static final double DELTA = 0.05;	// chance that some estimate is outside its bound
+
+    private final IndexedGraph<V,E> graph;
+    private final int[] members;		// ids of the vertices in the center's component
+    private final double[] estimates;	// estimated average separation by vertex id
+    private final int samples;
+    private final double halfWidth;		// every estimate is within this of the true value, w.p. 1 - DELTA
+    private final List<V> top = new ArrayList<>();	// the k best, best first
+    private final double[] topExact;	// exact average separation of each of the top k
+    private final int verified;			// vertices measured exactly
+
+    /**
+     * Estimates and verifies
+     *
+     * @param graph undirected graph to measure
+     * @param center only vertices with a path to the center are ranked
+     * @param k how many to return; none when k <= 0
+     * @param epsilon error relative to the diameter that the estimates should be within
+     * @param seed random seed for choosing the sources
+     * @param threads number of workers
+     */
+    public ApproximateCloseness(IndexedGraph<V,E> graph, V center, int k, double epsilon, long seed, int threads) {
+        if (epsilon <= 0) throw new IllegalArgumentException("epsilon must be positive: " + epsilon);
+        this.graph = graph;
+        int c = graph.vertexId(center);
+        if (c < 0) throw new IllegalArgumentException("Not a vertex: " + center);
+
+        // the center's component, from one search
+        ShortestPathTree<V,E> component = BreadthFirstSearch.forGraph(graph).run(c);
+        int m = component.numVertices();
+        members = new int[m];
+        int size = 0;
+        for (V v : component.vertices()) members[size++] = graph.vertexId(v);
+        double log = Math.log(2 * m / DELTA);
+        samples = (int) Math.min(m, Math.ceil(log / (2 * epsilon * epsilon)));
+
+        // uniform sources without replacement, by a partial shuffle
+        int[] sources = members.clone();
+        Random random = new Random(seed);
+        for (int i = 0; i < samples; i++) {
+            int j = i + random.nextInt(m - i);
+            int t = sources[i];
+            sources[i] = sources[j];
+            sources[j] = t;
+        }
+
+        // each worker sums the distances from its sources into its own array
+        int n = graph.vertexIdBound();
+        List<long[]> sums = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger next = new AtomicInteger(), minEccentricity = new AtomicInteger(Integer.MAX_VALUE);
+        ClosenessCentrality.runWorkers(threads, () -> {
+            BreadthFirstSearch<V,E> worker = BreadthFirstSearch.forGraph(graph);
+            long[] sum = new long[n];
+            for (int i; (i = next.getAndIncrement()) < samples; ) {
+                int eccentricity = worker.run(sources[i]).eccentricity();
+                for (int v : members) sum[v] += worker.distanceTo(v);
+                minEccentricity.accumulateAndGet(eccentricity, Math::min);
+            }
+            sums.add(sum);
+        });
+        estimates = new double[n];
+        Arrays.fill(estimates, Double.NaN);
+        for (int v : members) estimates[v] = 0;
+        for (long[] sum : sums) {
+            for (int v : members) estimates[v] += sum[v];
+        }
+        for (int v : members) estimates[v] /= samples;
+        halfWidth = samples == m ? 0 : 2.0 * minEccentricity.get() * Math.sqrt(log / (2.0 * samples));
+
+        // candidates: the best estimates whose lower bound is within reach of the k-th best upper bound
+        k = Math.max(0, Math.min(k, m));	// like ClosenessCentrality.topK, nothing for k <= 0
+        Integer[] byEstimate = new Integer[m];
+        for (int i = 0; i < m; i++) byEstimate[i] = members[i];
+        Arrays.sort(byEstimate, Comparator.comparingDouble((Integer v) -> estimates[v]));
+        double threshold = k == 0 ? Double.NEGATIVE_INFINITY : estimates[byEstimate[k - 1]] + 2 * halfWidth;
+        int limit = (int) Math.min(m, k + Math.ceil(Math.pow(k, 2.0 / 3) * Math.cbrt(Math.log(m))));
+        int count = 0;
+        while (count < limit && estimates[byEstimate[count]] <= threshold) count++;
+        int[] candidates = new int[count];
+        for (int i = 0; i < count; i++) candidates[i] = byEstimate[i];
+        verified = count;
+
+        double[] exact = samples == m ? null : ClosenessCentrality.averageSeparations(graph, candidates, threads);
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> exact == null ? estimates[candidates[i]] : exact[i])
+                .thenComparing(i -> String.valueOf(graph.vertexAt(candidates[i]))));
+        topExact = new double[k];
+        for (int i = 0; i < k; i++) {
+            top.add(graph.vertexAt(candidates[order[i]]));
+            topExact[i] = exact == null ? estimates[candidates[order[i]]] : exact[order[i]];
+        }
+    }
+
+    /** The k vertices with the lowest average separation, best first */
+    public List<V> getTop() {
+        return top;
+    }
+
+    /** Exact average separation of the i-th best */
+    public double getTopSeparation(int i) {
+        return topExact[i];
+    }
+
+    /** Estimated average separation of a vertex, or NaN if it is not in the center's component */
+    public double estimate(V v) {
+        int id = graph.vertexId(v);
+        return id < 0 ? Double.NaN : estimates[id];
+    }
+
+    /** Every estimate is within this of the true average separation, with probability 1 - DELTA */
+    public double getHalfWidth() {
+        return halfWidth;
+    }
+
+    /** How many sources were searched for the estimates */
+    public int getSamples() {
+        return samples;
+    }
+
+    /** How many vertices were ranked: the center's component */
+    public int getComponentSize() {
+        return members.length;
+    }
+
+    /** How many candidates were measured exactly */
+    public int getVerified() {
+        return verified;
+    }
+}
@@ -3,57 +3,45 @@ import java.io.*;
 import java.util.*;
 
 public class BaconGame {
+    /** Whether a Graph class overrides the id lookups, checked once per class */
+    private static final ClassValue<Boolean> KEEPS_IDS = new ClassValue<Boolean>() {
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("vertexId", Object.class).getDeclaringClass() != Graph.class
+                        && type.getMethod("outNeighborAt", int.class, int.class).getDeclaringClass() != Graph.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
     /**
      *
      * @param fileName read from file
      * @return return map of actors and movies by ID
      */
     public static Map<String, String> linkMap(String fileName) {
+        return linkMap(fileName, false);
+    }
+
+    /**
+     *
+     * @param fileName read from file
+     * @param parallel whether to parse chunks of the file on all cores
+     * @return return map of actors and movies by ID
+     */
+    public static Map<String, String> linkMap(String fileName, boolean parallel) {
         // Reads the file to build the initial maps
+        long start = Metrics.start();
         Map<String, String> linkMap = new HashMap<>();
-        BufferedReader input;
         try {
-            input = new BufferedReader(new FileReader(fileName));
+            PipeFileParser.parse(fileName, linkMap::put, parallel);
         } catch (FileNotFoundException e) {
             System.err.println("Cannot open file.\n" + e.getMessage());
-            return linkMap;
-        }
-
-        // Read the file
-        try {
-            // Line by line
-            String line;
-            int lineNum = 0;
-            while ((line = input.readLine()) != null) {
-                //System.out.println("read @" + lineNum + "`" + line + "'");
-                // Comma separated
-                String[] pieces = line.split("\\|");
-                if (pieces.length != 2) {
-                    System.err.println("bad separation in line " + lineNum + ":" + line);
-                } else {
-                    // Extract year as an integer, if possible
-                    try {
-                        String s = pieces[0];
-                        String i = pieces[1];
-                        // System.out.println("=>" + s);
-                        linkMap.put(s, i);
-                    } catch (NumberFormatException e) {
-                        System.err.println("bad number in line " + lineNum + ":" + line);
-                    }
-                }
-                lineNum++;
-            }
         } catch (IOException e) {
             System.err.println("IO error while reading.\n" + e.getMessage());
         }
-
-        // Close the file, if possible
-        try {
-            input.close();
-        } catch (IOException e) {
-            System.err.println("Cannot close file.\n" + e.getMessage());
-        }
-
+        Metrics.stage("linkMap", start, linkMap.size());
         return linkMap;
     }
 
@@ -64,55 +52,28 @@ public class BaconGame {
      */
 
     public static Map<String, Set<String>> actorsMap(String fileName) {
-        // reads file to get the actors mao
+        return actorsMap(fileName, false);
+    }
+
+    /**
+     *
+     * @param fileName read from files
+     * @param parallel whether to parse chunks of the file on all cores
+     * @return return map of actors and movies
+     */
+    public static Map<String, Set<String>> actorsMap(String fileName, boolean parallel) {
+        // reads file to get the actors map
+        long start = Metrics.start();
         Map<String, Set<String>> actorsMap = new HashMap<>();
-        BufferedReader input;
         try {
-            input = new BufferedReader(new FileReader(fileName));
+            PipeFileParser.parse(fileName, (s, i) -> actorsMap.computeIfAbsent(s, key -> new HashSet<String>()).add(i),
+                    parallel);
         } catch (FileNotFoundException e) {
             System.err.println("Cannot open file.\n" + e.getMessage());
-            return actorsMap;
-        }
-
-        // Read the file
-        try {
-            // Line by line
-            String line;
-            int lineNum = 0;
-            while ((line = input.readLine()) != null) {
-                //System.out.println("read @" + lineNum + "`" + line + "'");
-                String[] pieces = line.split("\\|");
-                if (pieces.length != 2) {
-                    System.err.println("bad separation in line " + lineNum + ":" + line);
-                } else {
-                    // Extract the needed elements if possible
-                    try {
-                        String s = pieces[0];
-                        String i = pieces[1];
-                        //System.out.println("=>" + s);
-                        if (!actorsMap.containsKey(s)) {
-                            actorsMap.put(s, new HashSet<String>());
-
-                        }
-                        actorsMap.get(s).add(i);
-
-                    } catch (NumberFormatException e) {
-                        System.err.println("bad number in line " + lineNum + ":" + line);
-                    }
-                }
-                lineNum++;
-            }
         } catch (IOException e) {
             System.err.println("IO error while reading.\n" + e.getMessage());
         }
-
-        // Close the file, if possible
-        try {
-            input.close();
-        } catch (IOException e) {
-            System.err.println("Cannot close file.\n" + e.getMessage());
-        }
-
+        Metrics.stage("actorsMap", start, actorsMap.size());
         return actorsMap;
     }
 
@@ -126,33 +87,40 @@ public class BaconGame {
      */
 
     public static <V, E> Graph<V, E> bfs(Graph<V, E> g, V source) {
+        long start = Metrics.start();
         Graph<V, E> veGraph = new AdjacencyMapGraph<>();
-
-
-
-        Set<V> visited = new HashSet<V>(); //Set to track which vertices have already been visited
-        Queue<V> queue = new LinkedList<V>(); //queue to implement BFS
-
-        queue.add(source); //enqueue start vertex
-        visited.add(source); //add start to visited Set
-        while (!queue.isEmpty()) { //loop until no more vertices
-            V u = queue.remove(); //dequeue
-            if (g.hasVertex(u)) {
-                veGraph.insertVertex(u);
-                for (V v : g.outNeighbors(u)) { //loop over out neighbors
-                    if (!visited.contains(v)) { //if neighbor not visited, then neighbor is discovered from this vertex
-                        visited.add(v); //add neighbor to visited Set
-                        queue.add(v); //enqueue neighbor
-                        if (g.hasVertex(v) && u != v) {
-                            veGraph.insertVertex(v);
-                            if (!veGraph.hasEdge(v, u)) {//save that this vertex was discovered from prior vertex
-                                veGraph.insertDirected(v, u, g.getLabel(u, v));
-                            }
-                        }
-                    }
+        long edges = 0; // edges scanned, for the metrics
+        g = withIds(g); // constant-time ids, so the search stays linear
+
+        int s = g.vertexId(source);
+        if (s < 0) return veGraph; // no such vertex, so nothing is reachable
+        // the search runs on int ids, with the queue and parents in arrays; the tree is built after
+        int[] queue = new int[g.vertexIdBound()]; //queue to implement BFS, in order of discovery
+        int[] parent = new int[g.vertexIdBound()]; //vertex each one was discovered from, -1 if not yet visited
+        Arrays.fill(parent, -1);
+        int head = 0, tail = 0;
+        queue[tail++] = s; //enqueue start vertex
+        parent[s] = s; //the start counts as visited
+        while (head < tail) { //loop until no more vertices
+            int u = queue[head++]; //dequeue
+            int degree = g.outDegreeOf(u);
+            edges += degree;
+            for (int k = 0; k < degree; k++) { //loop over out neighbors
+                int v = g.outNeighborAt(u, k);
+                if (parent[v] < 0) { //if neighbor not visited, then neighbor is discovered from this vertex
+                    parent[v] = u;
+                    queue[tail++] = v; //enqueue neighbor
                 }
             }
         }
+        veGraph.insertVertex(source);
+        for (int i = 1; i < tail; i++) { //save that each vertex was discovered from its parent
+            V v = g.vertexAt(queue[i]), u = g.vertexAt(parent[queue[i]]);
+            veGraph.insertVertex(v);
+            veGraph.insertDirected(v, u, g.getLabel(u, v));
+        }
+        Metrics.stage("bfs", start, tail);
+        Metrics.traversal("bfs", tail, edges);
         return veGraph;
 
     }
@@ -168,45 +136,60 @@ public class BaconGame {
 
     public static <V, E> List<V> getPath(Graph<V, E> tree, V v) {
         //check that DFS or BFS have already been run from start
-        if (!tree.hasVertex(v)) {
+        tree = withIds(tree);
+        int current = tree.vertexId(v); //start at end vertex
+        if (current < 0) {
             System.out.println("\tNo path found");
             return new ArrayList<V>();
         }
-        if (tree.outDegree(v) == 0) { // If it is the same as current, you cannot do.
+        if (tree.outDegreeOf(current) == 0) { // If it is the same as current, you cannot do.
             throw new IllegalArgumentException("Cannot do");
         }
+        long start = Metrics.start();
         //start from end vertex and work backward to start vertex
-        ArrayList<V> path = new ArrayList<V>(); //this will hold the path from start to end vertex
-        V current = v; //start at end vertex
+        ArrayList<V> path = new ArrayList<V>(); //this will hold the path from end to start vertex, then be reversed
         //loop from end vertex back to start vertex
-        while (tree.outDegree(current) != 0) {
-            path.add(0, current); //add this vertex to front of arraylist path
-            for (V vertex : tree.outNeighbors(current)) {
-                current = vertex; //get vertex that discovered this vertex
-
-            }
+        while (tree.outDegreeOf(current) != 0) {
+            path.add(tree.vertexAt(current)); //add this vertex to the end of arraylist path
+            current = tree.outNeighborAt(current, 0); //get vertex that discovered this vertex
         }
-        path.add(0,current); //add the last vertex to the front to keep track of it.
+        path.add(tree.vertexAt(current)); //add the start vertex to keep track of it.
+        Collections.reverse(path); //start vertex first
+        Metrics.stage("getPath", start, path.size());
         return path;
 
 
     }
 
-    public static <V, E> Set<V> missingVertices(Graph<V, E> graph, Graph<V, E> subgraph) {
-
-        // Using sets, finds the vertices not included in the bfs graph.
-        Set<V> missingVerts = new HashSet<>();
-        Set<V> sameVerts = new HashSet<>();
+    /**
+     *
+     * @param tree shortest-path tree from the array-based BFS
+     * @param v end vertex
+     * @param <V> Vertex
+     * @param <E> Label
+     * @return path from the root of the tree to v
+     */
 
-        for (V vertex : graph.vertices()) {
-            if (subgraph.hasVertex(vertex)) {
-                sameVerts.add(vertex);
+    public static <V, E> List<V> getPath(ShortestPathTree<V, E> tree, V v) {
+        if (!tree.hasVertex(v)) {
+            System.out.println("\tNo path found");
+            return new ArrayList<V>();
+        }
+        if (tree.distance(v) == 0) { // If it is the same as current, you cannot do.
+            throw new IllegalArgumentException("Cannot do");
+        }
+        long start = Metrics.start();
+        List<V> path = tree.getPath(v);
+        Metrics.stage("getPath", start, path.size());
+        return path;
+    }
 
-            }
+    public static <V, E> Set<V> missingVertices(Graph<V, E> graph, Graph<V, E> subgraph) {
 
-        }
+        // Finds the vertices not included in the bfs graph.
+        Set<V> missingVerts = new HashSet<>();
         for (V item : graph.vertices()) {
-            if (!sameVerts.contains(item)) {
+            if (!subgraph.hasVertex(item)) {
                 missingVerts.add(item);
 
             }
@@ -216,97 +199,292 @@ public class BaconGame {
         return missingVerts;
 
     }
+    public static <V, E> Set<V> missingVertices(ShortestPathTree<V, E> tree) { // vertices with no path to the root
+        return tree.missingVertices();
+    }
+
+    public static <V, E> double averageSep(ShortestPathTree<V, E> tree) { // average separation from the root
+        return tree.averageSeparation();
+    }
+
+    /**
+     * Gives a graph with int vertex ids for the array-based BFS: the latest snapshot of a ConcurrentGraph,
+     * else a copy into a CsrGraph if needed
+     */
+    public static <V, E> IndexedGraph<V, E> indexed(Graph<V, E> graph) {
+        if (graph instanceof IndexedGraph) return (IndexedGraph<V, E>) graph;
+        if (graph instanceof ConcurrentGraph) return ((ConcurrentGraph<V, E>) graph).snapshot();
+        return new CsrGraph<V, E>(graph);
+    }
+
+    /**
+     * Gives a graph whose id methods take constant time: the graph itself if its class overrides them,
+     * else a CsrGraph copied through the object methods, so a traversal costs O(V+E) once instead of
+     * a scan of the vertices for every id the Graph defaults look up
+     */
+    public static <V, E> Graph<V, E> withIds(Graph<V, E> graph) {
+        return KEEPS_IDS.get(graph.getClass()) ? graph : new CsrGraph<V, E>(graph);
+    }
+
     public static <V,E> double averageSep(Graph<V,E> tree, V root, double separation){ // finds the average
         // separation of those in the bfs tree
         return totalSeparation(tree,root,0)/tree.numVertices();
     }
 
     public static <V, E> double totalSeparation(Graph<V, E> tree, V root, double separation){ // finds the total separation
-        // to find the average separation
-        double total = separation;
-        for (V vertex : tree.inNeighbors(root)) {
-            total += totalSeparation(tree,vertex,separation +1);
+        // to find the average separation, one tree level at a time (children are in-neighbors) so deep trees can't
+        // overflow the stack; the levels are consecutive runs of an int queue
+        tree = withIds(tree);
+        int[] queue = new int[tree.vertexIdBound()];
+        int head = 0, tail = 0;
+        queue[tail++] = tree.vertexId(root);
+        double total = 0;
+        while (head < tail) {
+            int end = tail;
+            total += separation * (end - head);
+            for (; head < end; head++) {
+                int vertex = queue[head];
+                int children = tree.inDegreeOf(vertex);
+                for (int k = 0; k < children; k++) queue[tail++] = tree.inNeighborAt(vertex, k);
+            }
+            separation++;
         }
         return total;
     }
     public static Graph<String,Set<String>> mainGraphTest(String actor, String movies, String movieActors) { //Create the main graphs using the three files
-        Map<String, String> actors = linkMap(actor);
-        Map<String, String> b = linkMap(movies);
-        Map<String, Set<String>> j = actorsMap(movieActors);
+        Map<String, String> actors = linkMap(actor), titles = linkMap(movies);
+        Map<String, Set<String>> casts = actorsMap(movieActors);
+        long start = Metrics.start();
+        Graph<String, Set<String>> graph = buildGraph(actors, titles, casts);
+        Metrics.stage("buildGraph", start, casts.size());
+        Metrics.graphSize("mainGraph", graph);
+        return graph;
+    }
+
+    public static Graph<String,Set<String>> mainGraph() { //Create the main graphs using the three files
+        return mainGraphTest("inputs/actors.txt", "inputs/movies.txt", "inputs/movie-actors.txt");
+    }
+
+    /**
+     * Builds the co-star graph in one pass over each movie's cast, so the cost grows with the total cast size
+     * instead of actors x movies
+     *
+     * @param actors actor names by ID
+     * @param movies movie titles by ID
+     * @param movieActors actor IDs by movie ID
+     * @return graph of actors with an edge between co-stars, labeled by the movies they shared as a MovieSet
+     */
+    public static Graph<String,Set<String>> buildGraph(Map<String, String> actors, Map<String, String> movies,
+                                                       Map<String, Set<String>> movieActors) {
         Graph<String, Set<String>> graph = new AdjacencyMapGraph<>();
         for (String id : actors.keySet()) {
             graph.insertVertex(actors.get(id));
         }
-        // Links each person in the map with their matching Id and finds the appropriate edges to insert
-        for (String id : actors.keySet()) {
-            for (String movieID : j.keySet()) {
-                if (j.get(movieID).contains(id)) {
-                    for (String link : j.get(movieID)) {
-                        if (!id.equals(link)) {
-                            String actorID = actors.get(id);
-                            String otherActorID = actors.get(link);
-                            if (!graph.hasEdge(actors.get(id), actors.get(link))) {
-                                graph.insertUndirected(actorID, otherActorID, new HashSet<>());
-                            }
-                            graph.getLabel(actorID, otherActorID).add(b.get(movieID));
-
-                        }
-
+        TitleTable titles = new TitleTable();	// labels hold interned title ids
+        List<String> cast = new ArrayList<>();
+        for (String movieID : movieActors.keySet()) {
+            int title = titles.intern(movies.get(movieID));
+            cast.clear();
+            for (String id : movieActors.get(movieID)) { // cast members without an actor entry have no vertex
+                if (actors.containsKey(id)) cast.add(actors.get(id));
+            }
+            // Every pair in the cast shares this movie; one compact label serves both directions of the pair
+            for (int i = 0; i < cast.size(); i++) {
+                for (int j = i + 1; j < cast.size(); j++) {
+                    MovieSet label = (MovieSet) graph.getLabel(cast.get(i), cast.get(j));
+                    if (label == null) {
+                        label = titles.newLabel();
+                        graph.insertUndirected(cast.get(i), cast.get(j), label);
                     }
+                    label.addId(title);
                 }
             }
-
         }
         return graph;
     }
 
-    public static Graph<String,Set<String>> mainGraph() { //Create the main graphs using the three files
-        Map<String, String> actors = linkMap("inputs/actors.txt");
-        Map<String, String> b = linkMap("inputs/movies.txt");
-        Map<String, Set<String>> j = actorsMap("inputs/movie-actors.txt");
-        Graph<String, Set<String>> graph = new AdjacencyMapGraph<>();
+    /**
+     * Builds the co-star graph straight from the three files into a read-only CSR graph, without
+     * going through an AdjacencyMapGraph
+     *
+     * @param actor actors file
+     * @param movies movies file
+     * @param movieActors movie-actors file
+     * @return undirected co-star graph, one label set per pair of co-stars
+     */
+    public static CsrGraph<String,Set<String>> csrGraph(String actor, String movies, String movieActors) {
+        Map<String, String> actors = linkMap(actor);
+        Map<String, String> b = linkMap(movies);
+        Map<String, Set<String>> j = actorsMap(movieActors);
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> ids = new HashMap<>();
         for (String id : actors.keySet()) {
-            graph.insertVertex(actors.get(id));
+            String name = actors.get(id);
+            if (!ids.containsKey(name)) {
+                ids.put(name, names.size());
+                names.add(name);
+            }
         }
-        // Links each person in the map with their matching Id and finds the appropriate edges to insert
-        for (String id : actors.keySet()) {
-            for (String movieID : j.keySet()) {
-                if (j.get(movieID).contains(id)) {
-                    for (String link : j.get(movieID)) {
-                        if (!id.equals(link)) {
-                            String actorID = actors.get(id);
-                            String otherActorID = actors.get(link);
-                            if (!graph.hasEdge(actors.get(id), actors.get(link))) {
-                                graph.insertUndirected(actorID, otherActorID, new HashSet<>());
-                            }
-                            graph.getLabel(actorID, otherActorID).add(b.get(movieID));
+        // Pairs keyed by (lower id, higher id), so each undirected edge is only listed once
+        Map<Long, MovieSet> pairs = new HashMap<>();
+        TitleTable titles = new TitleTable();
+        List<Integer> cast = new ArrayList<>();
+        for (String movieID : j.keySet()) {
+            int title = titles.intern(b.get(movieID));
+            cast.clear();
+            for (String id : j.get(movieID)) {
+                if (actors.containsKey(id)) cast.add(ids.get(actors.get(id)));
+            }
+            for (int i = 0; i < cast.size(); i++) {
+                for (int k = i + 1; k < cast.size(); k++) {
+                    int u = Math.min(cast.get(i), cast.get(k)), v = Math.max(cast.get(i), cast.get(k));
+                    pairs.computeIfAbsent(((long) u << 32) | v, key -> titles.newLabel()).addId(title);
+                }
+            }
+        }
+        int[] from = new int[pairs.size()], to = new int[pairs.size()];
+        List<Set<String>> labels = new ArrayList<>(pairs.size());
+        for (Map.Entry<Long, MovieSet> pair : pairs.entrySet()) {
+            from[labels.size()] = (int) (pair.getKey() >>> 32);
+            to[labels.size()] = (int) (long) pair.getKey();
+            labels.add(pair.getValue());
+        }
+        CsrGraph<String, Set<String>> graph = new CsrGraph<>(names, from, to, labels, true);
+        Metrics.graphSize("csrGraph", graph);
+        return graph;
+    }
 
-                        }
+    /**
+     * Builds the co-star graph as a bipartite actor-movie graph, linking each movie to its cast
+     * instead of linking every pair of co-stars, so memory is linear in the total cast size
+     *
+     * @param actor actors file
+     * @param movies movies file
+     * @param movieActors movie-actors file
+     * @return read-only graph that answers like the clique graph; search it with BipartiteSearch
+     */
+    public static BipartiteGraph bipartiteGraph(String actor, String movies, String movieActors) {
+        BipartiteGraph graph = new BipartiteGraph(linkMap(actor), linkMap(movies), actorsMap(movieActors));
+        Metrics.graphSize("bipartiteGraph", graph);
+        return graph;
+    }
 
-                    }
-                }
+    /**
+     * Builds the co-star graph off the Java heap, straight from the three files, so its size adds
+     * nothing for the garbage collector to trace
+     *
+     * @param actor actors file
+     * @param movies movies file
+     * @param movieActors movie-actors file
+     * @return read-only graph over direct buffers that answers like the clique graph
+     */
+    public static OffHeapGraph offHeapGraph(String actor, String movies, String movieActors) {
+        try {
+            OffHeapGraph graph = new OffHeapGraph(actor, movies, movieActors);
+            Metrics.graphSize("offHeapGraph", graph);
+            return graph;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load " + actor + ", " + movies + ", " + movieActors, e);
+        }
+    }
+
+    /**
+     * Loads the co-star graph from a binary snapshot, memory-mapping it; the snapshot is first written
+     * from the input files if it does not exist yet, or if the sizes or modification times of the input
+     * files no longer match the ones it was built from
+     *
+     * @param snapshot snapshot file
+     * @param actor actors file
+     * @param movies movies file
+     * @param movieActors movie-actors file
+     * @return read-only graph over the mapped snapshot
+     */
+    public static MappedGraph snapshotGraph(String snapshot, String actor, String movies, String movieActors) {
+        File file = new File(snapshot);
+        long stamp = GraphSnapshot.stamp(new File(actor), new File(movies), new File(movieActors));
+        try {
+            if (!GraphSnapshot.isCurrent(file, stamp)) {
+                GraphSnapshot.write(csrGraph(actor, movies, movieActors), file, stamp);
             }
+            return GraphSnapshot.map(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load snapshot " + snapshot, e);
+        }
+    }
 
+    /**
+     * Loads a distance oracle for the graph, building and saving it first if the file does not exist
+     * or was saved for a graph with other edges, and prints its build time and memory
+     *
+     * @param graph graph to answer distance queries on
+     * @param oracleFile where the oracle is saved
+     * @return the oracle
+     */
+    public static <V, E> DistanceOracle<V, E> distanceOracle(IndexedGraph<V, E> graph, String oracleFile) {
+        File file = new File(oracleFile);
+        try {
+            DistanceOracle<V, E> oracle;
+            if (DistanceOracle.isCurrent(graph, file)) {
+                oracle = DistanceOracle.load(graph, file);
+            } else {
+                oracle = DistanceOracle.build(graph);
+                oracle.save(file);
+            }
+            System.out.println(oracle.report());
+            return oracle;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load distance oracle " + oracleFile, e);
         }
-        return graph;
     }
 
+    /**
+     * Prints the k actors with the lowest average separation among those with a path to name, worst to best,
+     * by pruned searches that give up on an actor as soon as it cannot make the top k
+     */
     public static void getAvg(Graph<String,Set<String>> graph,int k, String name) {
+        long start = Metrics.start();
+        IndexedGraph<String, Set<String>> indexed = indexed(graph);
+        int[] top = ClosenessCentrality.topK(indexed, indexed.vertexId(name), k);
+        List<String> result = new ArrayList<>();
+        for (int i = top.length - 1; i >= 0; i--) result.add(indexed.vertexAt(top[i])); // worst to best
+        Metrics.stage("getAvg", start, top.length);
+
+        System.out.println(result);
+    }
+
+    /**
+     * Prints the k actors with the lowest average separation among those with a path to name, worst to best,
+     * measuring every actor in parallel on all cores
+     *
+     * @param bitParallel whether to run 64 BFS sources per pass instead of one BFS per actor
+     */
+    public static void getAvg(Graph<String,Set<String>> graph,int k, String name, boolean bitParallel) {
         // Uses a priority queue to order the averages lowest to highest
+        if (!graph.hasVertex(name)) { // nobody has a path to an unknown center
+            System.out.println(new ArrayList<String>());
+            return;
+        }
+        long start = Metrics.start();
         Map<String,Double> integerMap = new HashMap<>();
+        IndexedGraph<String, Set<String>> indexed = indexed(graph);
+        int threads = Runtime.getRuntime().availableProcessors();
+        double[] averages = bitParallel
+                ? ClosenessCentrality.averageSeparationsBitParallel(indexed, indexed.vertexId(name), threads)
+                : ClosenessCentrality.averageSeparations(indexed, indexed.vertexId(name), threads);
         for (String vertex : graph.vertices()) {
-            Graph<String, Set<String>> graph1 = bfs(graph,vertex);
-            if (graph1.hasVertex(name)) {
-                integerMap.put(vertex, averageSep(graph1, vertex,0));
+            double average = averages[indexed.vertexId(vertex)];
+            if (!Double.isNaN(average)) { // NaN when there is no path to name
+                integerMap.put(vertex, average);
             }
         }
 
 
         PriorityQueue<String> pq = new PriorityQueue<String>(new Comparator<String>() {
-            // Orders from lowest to highest
+            // Orders from highest to lowest, so the worst is polled first; ties by name
             @Override
             public int compare(String o1, String o2) {
-                return integerMap.get(o2).compareTo(integerMap.get(o1));
+                int byAverage = integerMap.get(o2).compareTo(integerMap.get(o1));
+                return byAverage != 0 ? byAverage : o2.compareTo(o1);
 
             }
 
@@ -318,37 +496,50 @@ public class BaconGame {
 
         List<String> result = new ArrayList<>();
         while (!pq.isEmpty()) result.add(pq.poll());
+        Metrics.stage("getAvg", start, averages.length);
 
         System.out.println(result); // return the top list
     }
 
-    public static void getDeg(Graph<String,Set<String>> graph, int k, String name) {
-
-        // gets the top degree options using priority queue
-        Map<String,Double> integerMap = new HashMap<>();
-        for (String vertex : graph.vertices()) {
-            Graph<String, Set<String>> graph1 = bfs(graph,vertex);
-            if (graph1.hasVertex(name)) {
-                graph1.inDegree(vertex);
-                integerMap.put(vertex, (double) graph1.inDegree(vertex));
-            }
-        }
-
+    /**
+     * Like getAvg, but estimates every actor's average separation from a sample of sources and only
+     * measures exactly the candidates that could be in the top k
+     *
+     * @param epsilon error of the estimates relative to the diameter; smaller means more samples
+     */
+    public static void getAvgApprox(Graph<String,Set<String>> graph, int k, String name, double epsilon) {
+        long start = Metrics.start();
+        ApproximateCloseness<String, Set<String>> closeness = new ApproximateCloseness<>(indexed(graph), name, k,
+                epsilon, System.nanoTime(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("estimated from %d of %d sources, each within %.3f with %.0f%% confidence; verified %d exactly%n",
+                closeness.getSamples(), closeness.getComponentSize(), closeness.getHalfWidth(),
+                100 * (1 - ApproximateCloseness.DELTA), closeness.getVerified());
+        List<String> result = new ArrayList<>(closeness.getTop());
+        Collections.reverse(result); // worst to best, like getAvg
+        Metrics.stage("getAvgApprox", start, closeness.getSamples());
 
-        PriorityQueue<String> pq = new PriorityQueue<String>(new Comparator<String>() {
-            @Override
-            public int compare(String o1, String o2) {
-                return integerMap.get(o1).compareTo(integerMap.get(o2));
-            }
+        System.out.println(result);
+    }
 
-        });
-        for (String entry : integerMap.keySet()) {
-            pq.add(entry);
-            if (pq.size() > k) pq.poll();
-        }
+    public static void getDeg(Graph<String,Set<String>> graph, int k, String name) {
+        IndexedGraph<String, Set<String>> indexed = indexed(graph);
+        getDeg(new DegreeIndex<>(indexed), new ComponentIndex<>(indexed), k, name, false);
+    }
 
+    /**
+     * Prints the k actors with the most co-stars among those with a path to name, lowest to highest,
+     * reading them off the degree index instead of searching from every actor
+     *
+     * @param byMovies whether to rank by distinct movies instead of co-stars
+     */
+    public static void getDeg(DegreeIndex<String> degrees, ComponentIndex<String> components, int k, String name,
+                              boolean byMovies) {
+        List<String> ranked = degrees.range(0, Integer.MAX_VALUE, byMovies); // everyone, lowest to highest
         List<String> result = new ArrayList<>();
-        while (!pq.isEmpty()) result.add(pq.poll());
+        for (int i = ranked.size() - 1; i >= 0 && result.size() < k; i--) {
+            if (components.connected(ranked.get(i), name)) result.add(ranked.get(i));
+        }
+        Collections.reverse(result);
 
         System.out.println(result);
     }
@@ -454,63 +645,104 @@ public class BaconGame {
 
     }
 
+    /**
+     * Prints vertices in set notation as they are produced, without collecting them first
+     */
+    public static <V> void printAll(Iterable<V> vertices) {
+        StringBuilder line = new StringBuilder("[");
+        String separator = "";
+        for (V v : vertices) {
+            line.append(separator).append(v);
+            separator = ", ";
+            if (line.length() > 8192) { // flush long listings as they grow
+                System.out.print(line);
+                line.setLength(0);
+            }
+        }
+        System.out.println(line.append("]"));
+    }
+
     public static void playGame(String firstName,Graph<String,Set<String>> main) {
-        String current;
+        GameSession session = new GameSession(main, firstName); // graph and center tree shared by every command
         boolean playing = true;
         System.out.println( // Gaming interface, suggest best Bacon by avg separation and Degree, finds path within list
                 """
-                        c <#>:List the best Kevin Bacon substitutes from worst to best to k people based on path length
-                        d <low> <high>: list actors sorted by degree, with degree between low and high
+                        c <#> [all|bits]:List the best Kevin Bacon substitutes from worst to best to k people based on path length
+                        c <#> approx <epsilon>: the same, estimated from sampled sources and then verified
+                        d <low> <high> [movies]: list actors sorted by degree, with degree between low and high
+                        d <#> [movies]: the top k actors by degree, or by distinct movies
                         p <name>: find path from <name> to current center of the universe
                         s <low> <high>: Number of actors who have a path
                         a <n#>: Average path length of all connected vertices u <name>: make <name> the center of the universe
                         m <list> missing verticies
                         l <#> find the degree of the current
+                        x: show load and query timings
                         q: quit game""");
+        Scanner in = new Scanner(System.in);
         while (playing) {
-            Scanner in = new Scanner(System.in);
-
-            current = firstName;
+            String current = session.getCenter();
+            Graph<String, Set<String>> graph = session.getGraph();
+            ShortestPathTree<String, Set<String>> tree = session.getTree();
             System.out.println("<The " + current + " Game>  ");
 
             System.out.println(current + " is now the center of the acting universe, connected to " +
-                    (bfs(mainGraph(),current).numVertices()-1)
-                    + " / " + mainGraph().numVertices() + " with average seperation " +
-                    averageSep(bfs(mainGraph(),current),current, 0));
+                    session.numConnected()
+                    + " / " + graph.numVertices() + " with average seperation " +
+                    session.getAverageSeparation());
 
 
             String character = in.next();
             if (character.equals("c")) {
                 System.out.println("Choose top k"); // Suggest new Bacon by path length with top k suggestions
                 int nextInt = in.nextInt();
-                getAvg(mainGraph(), nextInt, current);
+                String[] rest = in.nextLine().trim().split("\\s+");
+                double epsilon = rest[0].equals("approx") && rest.length > 1 ? Double.parseDouble(rest[1]) : 0.1;
+                if (nextInt <= 0) {
+                    System.err.println("k must be positive");
+                } else if (epsilon <= 0) {
+                    System.err.println("epsilon must be positive");
+                } else if (rest[0].equals("approx")) { // "c <k> approx <epsilon>": sampled estimates, then verified
+                    getAvgApprox(session.getIndexedGraph(), nextInt, current, epsilon);
+                } else {
+                    if (rest[0].equals("bits") || rest[0].equals("all")) { // measure everyone; bits: 64 per pass
+                        getAvg(session.getIndexedGraph(), nextInt, current, rest[0].equals("bits"));
+                    } else {
+                        getAvg(session.getIndexedGraph(), nextInt, current);
+                    }
+                }
             } else if (character.equals("d")) { // Suggest new Bacon by degree with top k suggestions
                 System.out.println("Choose top k");
                 int nextInt = in.nextInt();
-                getDeg(mainGraph(), nextInt,current);
+                // "d <k> [movies]" for the top k, "d <low> <high> [movies]" for a range of degrees
+                String[] rest = in.nextLine().trim().split("\\s+");
+                boolean byMovies = rest[rest.length - 1].equals("movies");
+                if (!rest[0].isEmpty() && !rest[0].equals("movies")) {
+                    System.out.println(session.getDegrees().range(nextInt, Integer.parseInt(rest[0]), byMovies));
+                } else {
+                    getDeg(session.getDegrees(), session.getComponents(), nextInt, current, byMovies);
+                }
             } else if (character.equals("p")) { //Find a path from someone in the tree, if not in tree no path found.
                 System.out.println("Who do you want path from?: ");
                 in.nextLine();
                 String nextString = in.nextLine();
 
-                if (mainGraph().hasVertex(nextString)) {
-                    Stack<String> path = new Stack<>();
-                    List<String> list = getPath(bfs(mainGraph(), current), nextString);
-                    path.addAll(list);
-                    if (!path.isEmpty()) {
-                        System.out.println("Bacon number is: " + (path.size() - 1));
-                    }
-                    for (int i = list.size() - 1; i > 0; i--) {
-                        System.out.println(list.get(i) + " was in " + mainGraph().getLabel(list.get(i),
-                                list.get(i - 1)).toString() + " with" + " " + list.get(i - 1));
-                    }
-                    if (path.isEmpty()){
+                if (graph.hasVertex(nextString)) {
+                    ShortestPath<String, Set<String>> path = session.findPath(nextString);
+                    if (path != null) {
+                        System.out.println("Bacon number is: " + path.length());
+                        List<String> list = path.getVertices();
+                        for (int i = list.size() - 1; i > 0; i--) {
+                            System.out.println(list.get(i) + " was in " + path.getLabels().get(i - 1).toString()
+                                    + " with" + " " + list.get(i - 1));
+                        }
+                    } else {
+                        System.out.println("\tNo path found");
                         System.out.println("Bacon number is infinity");
                     }
 
                 } else {
                     System.err.println("Not a valid vertex");
-                    System.out.println("Choose these: " + mainGraph().vertices());
+                    System.out.println("Choose these: " + graph.vertices());
 
                 }
 
@@ -518,30 +750,32 @@ public class BaconGame {
             } else if (character.equals("s")) { //Find actors in the tree with a path to center
                 in.nextLine();
                 System.out.println("Number of actors who have a path:  ");
-                System.out.println((bfs(mainGraph(), current).numVertices() - 1));
+                System.out.println(session.numConnected());
 
             } else if (character.equals("u")) { //change the center and start new Bacon game, unless not in graph
                 System.out.println("Who do you want at the center of the Universe?: ");
                 in.nextLine();
                 String newCurrent = in.nextLine();
-                if (mainGraph().hasVertex(newCurrent)) {
-                    current = newCurrent;
-                    System.out.println(current);
-                    playGame(current,main);
-                }
-                else if (!mainGraph().hasVertex(newCurrent)) {
-                    throw new IllegalArgumentException("Can't do that one");
-                }
+                session.setCenter(newCurrent); // only place the tree is recomputed
+                System.out.println(newCurrent);
             }
             else if (character.equals("m")) { // finds vertex that is not connected to center
                 System.out.println("finding missing vertex:  ");
-                System.out.println(missingVertices(mainGraph(),bfs(mainGraph(),current)));
+                printAll(session.getComponents().unreachable(current));
 
             }else if (character.equals("a")) { // find average separation of current
-                System.out.println(averageSep(bfs(mainGraph(),current),current,0));
+                System.out.println(session.getAverageSeparation());
 
             }else if (character.equals("l")) { // find the degree of the current
-                System.out.println(bfs(mainGraph(),current).inDegree(current));
+                System.out.println(tree.numChildren(current));
+            }
+            else if (character.equals("x")) { // timings, recorded from the first x on
+                if (Metrics.getRegistry() instanceof StatsRegistry) {
+                    System.out.print(((StatsRegistry) Metrics.getRegistry()).report());
+                } else {
+                    Metrics.setRegistry(new StatsRegistry());
+                    System.out.println("Recording timings from now on");
+                }
             }
             else if (character.equals("q")) {
                 in.close();
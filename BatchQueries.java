@@ -0,0 +1,192 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Answers a file of "center|actor" Bacon number queries in bulk: the queries are grouped by center and
+ * each distinct center is searched once, so the cost grows with the number of distinct centers rather
+ * than with the number of queries
+ * In bit-parallel mode 64 centers share each pass, one bit per center in a word per vertex, and an
+ * answer is written the moment the search for its center reaches its actor
+ * Answers are streamed to the output as "center|actor|number", with "infinity" when there is no path,
+ * grouped by center rather than in input order; queries naming an unknown actor are reported on
+ * System.err and skipped
+ */
+public class BatchQueries {
+    private final IndexedGraph<String, Set<String>> graph;
+    private int[] centers = new int[1024], actors = new int[1024];	// ids of the queries, in input order
+    private int size;
+
+    /**
+     * Reads the queries
+     *
+     * @param graph graph to answer from
+     * @param queryFile one "center|actor" pair per line
+     */
+    public BatchQueries(IndexedGraph<String, Set<String>> graph, String queryFile) throws IOException {
+        this.graph = graph;
+        PipeFileParser.parse(queryFile, (center, actor) -> {
+            int c = graph.vertexId(center), a = graph.vertexId(actor);
+            if (c < 0 || a < 0) {
+                System.err.println("unknown actor in query: " + center + "|" + actor);
+                return;
+            }
+            if (size == centers.length) {
+                centers = Arrays.copyOf(centers, size * 2);
+                actors = Arrays.copyOf(actors, size * 2);
+            }
+            centers[size] = c;
+            actors[size++] = a;
+        });
+    }
+
+    /** How many queries were read */
+    public int size() {
+        return size;
+    }
+
+    /** Query indices ordered by center id, by counting sort; starts[c]..starts[c+1] are center c's */
+    private int[] byCenter(int[] starts) {
+        for (int q = 0; q < size; q++) starts[centers[q] + 1]++;
+        for (int c = 0; c + 1 < starts.length; c++) starts[c + 1] += starts[c];
+        int[] order = new int[size];
+        int[] next = Arrays.copyOf(starts, starts.length - 1);
+        for (int q = 0; q < size; q++) order[next[centers[q]]++] = q;
+        return order;
+    }
+
+    /**
+     * Answers every query, one BFS per distinct center
+     *
+     * @param out where the answers go
+     * @return number of searches run
+     */
+    public int answer(Writer out) throws IOException {
+        int n = graph.vertexIdBound();
+        int[] starts = new int[n + 1];
+        int[] order = byCenter(starts);
+        BreadthFirstSearch<String, Set<String>> search = BreadthFirstSearch.forGraph(graph);
+        int searches = 0;
+        for (int c = 0; c < n; c++) {
+            if (starts[c] == starts[c + 1]) continue;
+            search.run(c);
+            searches++;
+            for (int i = starts[c]; i < starts[c + 1]; i++) {
+                int q = order[i];
+                write(out, q, search.distanceTo(actors[q]));
+            }
+        }
+        out.flush();
+        return searches;
+    }
+
+    /**
+     * Answers every query by bit-parallel BFS, 64 distinct centers per pass
+     *
+     * @param out where the answers go
+     * @return number of passes run
+     */
+    public int answerBitParallel(Writer out) throws IOException {
+        int n = graph.vertexIdBound();
+        int[] starts = new int[n + 1];
+        int[] order = byCenter(starts);
+        long[] seen = new long[n], frontier = new long[n], reach = new long[n];
+        long[] wanted = new long[n];			// centers of this pass with a query about each vertex
+        int[] firstQuery = new int[n];			// queries of this pass about each vertex, linked through nextQuery
+        int[] nextQuery = new int[size];
+        boolean[] answered = new boolean[size];
+        int[] group = new int[64];				// centers of this pass, by bit
+        int[] bitOf = new int[n];				// bit of each center of this pass
+        Arrays.fill(firstQuery, -1);
+        int passes = 0;
+        for (int c = 0; c < n; ) {
+            // the next 64 centers that have queries
+            int batch = 0;
+            for (; c < n && batch < 64; c++) {
+                if (starts[c] < starts[c + 1]) group[batch++] = c;
+            }
+            if (batch == 0) break;
+            passes++;
+            Arrays.fill(seen, 0);
+            Arrays.fill(frontier, 0);
+            for (int b = 0; b < batch; b++) {
+                int center = group[b];
+                bitOf[center] = b;
+                seen[center] |= 1L << b;
+                frontier[center] |= 1L << b;
+                for (int i = starts[center]; i < starts[center + 1]; i++) {
+                    int q = order[i], a = actors[q];
+                    wanted[a] |= 1L << b;
+                    nextQuery[q] = firstQuery[a];
+                    firstQuery[a] = q;
+                }
+            }
+            for (int b = 0; b < batch; b++) found(out, group[b], 1L << b, 0, bitOf, firstQuery, nextQuery, answered);
+            boolean active = true;
+            for (int level = 1; active; level++) {
+                for (int u = 0; u < n; u++) {
+                    long bits = frontier[u];
+                    if (bits == 0) continue;
+                    int degree = graph.outDegreeOf(u);
+                    for (int k = 0; k < degree; k++) reach[graph.outNeighborAt(u, k)] |= bits;
+                }
+                active = false;
+                for (int v = 0; v < n; v++) {
+                    long fresh = reach[v] & ~seen[v];
+                    reach[v] = 0;
+                    frontier[v] = fresh;
+                    if (fresh == 0) continue;
+                    active = true;
+                    seen[v] |= fresh;
+                    if ((fresh & wanted[v]) != 0) found(out, v, fresh, level, bitOf, firstQuery, nextQuery, answered);
+                }
+            }
+            // whatever is left has no path; reset the per-pass lists
+            for (int b = 0; b < batch; b++) {
+                for (int i = starts[group[b]]; i < starts[group[b] + 1]; i++) {
+                    int q = order[i];
+                    if (!answered[q]) write(out, q, -1);
+                    wanted[actors[q]] = 0;
+                    firstQuery[actors[q]] = -1;
+                }
+            }
+        }
+        out.flush();
+        return passes;
+    }
+
+    /** Answers the queries about v from the centers whose bits are set, at the given distance */
+    private void found(Writer out, int v, long bits, int level, int[] bitOf, int[] firstQuery, int[] nextQuery,
+                       boolean[] answered) throws IOException {
+        for (int q = firstQuery[v]; q >= 0; q = nextQuery[q]) {
+            if (!answered[q] && (bits & (1L << bitOf[centers[q]])) != 0) {
+                answered[q] = true;
+                write(out, q, level);
+            }
+        }
+    }
+
+    private void write(Writer out, int q, int distance) throws IOException {
+        out.write(graph.vertexAt(centers[q]) + "|" + graph.vertexAt(actors[q]) + "|"
+                + (distance < 0 ? "infinity" : String.valueOf(distance)) + "\n");
+    }
+
+    /** Answers a query file against the input files: BatchQueries queries output [bits] */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BatchQueries <query file> <output file> [bits]");
+            return;
+        }
+        boolean bitParallel = args.length > 2 && args[2].equals("bits");
+        IndexedGraph<String, Set<String>> graph = BaconGame.csrGraph("inputs/actors.txt", "inputs/movies.txt",
+                "inputs/movie-actors.txt");
+        long start = System.nanoTime();
+        BatchQueries queries = new BatchQueries(graph, args[0]);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8))) {
+            int searches = bitParallel ? queries.answerBitParallel(out) : queries.answer(out);
+            System.out.printf("%d queries, %d %s, %.1f ms%n", queries.size(), searches,
+                    bitParallel ? "bit-parallel passes" : "searches", (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.*;
+
+/**
+ * Compares BaconGame.bfs with the array-based BFS, top-down and direction-optimizing,
+ * on the full inputs: wall time, edges examined, and whether the distances agree
+ */
+public class BfsBenchmark {
+    private static final int RUNS = 5;	// timed runs per source and implementation, after one warm-up run
+
+    /** Distance from the root of a BaconGame.bfs tree, following the child -> parent edges */
+    private static <V, E> int treeDistance(Graph<V, E> tree, V v) {
+        int d = 0;
+        while (tree.outDegree(v) != 0) {
+            v = tree.outNeighbors(v).iterator().next();
+            d++;
+        }
+        return d;
+    }
+
+    /** Edges BaconGame.bfs looks at: every edge out of every vertex it reaches */
+    private static <V, E> long treeEdges(Graph<V, E> graph, Graph<V, E> tree) {
+        long edges = 0;
+        for (V v : tree.vertices()) edges += graph.outDegree(v);
+        return edges;
+    }
+
+    public static void main(String[] args) {
+        String actors = args.length > 0 ? args[0] : "inputs/actors.txt";
+        String movies = args.length > 1 ? args[1] : "inputs/movies.txt";
+        String movieActors = args.length > 2 ? args[2] : "inputs/movie-actors.txt";
+        Graph<String, Set<String>> graph = BaconGame.mainGraphTest(actors, movies, movieActors);
+        CsrGraph<String, Set<String>> csr = new CsrGraph<>(graph);
+        BreadthFirstSearch<String, Set<String>> topDown = new BreadthFirstSearch<>(csr);
+        BreadthFirstSearch<String, Set<String>> optimizing = new BreadthFirstSearch<>(csr);
+        optimizing.setDirectionOptimizing(true);
+
+        // Kevin Bacon if present, plus the highest-degree vertex and a few random ones
+        List<String> sources = new ArrayList<>();
+        if (graph.hasVertex("Kevin Bacon")) sources.add("Kevin Bacon");
+        String hub = null;
+        for (String v : graph.vertices()) {
+            if (hub == null || graph.outDegree(v) > graph.outDegree(hub)) hub = v;
+        }
+        if (hub != null && !sources.contains(hub)) sources.add(hub);
+        List<String> all = new ArrayList<>();
+        for (String v : graph.vertices()) all.add(v);
+        Random random = new Random(42);
+        for (int i = 0; i < 3 && !all.isEmpty(); i++) sources.add(all.get(random.nextInt(all.size())));
+
+        System.out.println(graph.numVertices() + " vertices, " + graph.numEdges() + " directed edges");
+        System.out.printf("%-30s %10s %14s %10s %14s %10s %14s %s%n", "source", "reached",
+                "bfs ms", "edges", "array ms", "edges", "dir-opt ms", "edges / distances match");
+        for (String source : sources) {
+            Graph<String, Set<String>> tree = BaconGame.bfs(graph, source);
+            long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) tree = BaconGame.bfs(graph, source);
+            double legacyMs = (System.nanoTime() - start) / 1e6 / RUNS;
+
+            topDown.run(source);
+            start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) topDown.run(source);
+            double topDownMs = (System.nanoTime() - start) / 1e6 / RUNS;
+            long topDownEdges = topDown.getEdgesExamined();
+
+            optimizing.run(source);
+            start = System.nanoTime();
+            ShortestPathTree<String, Set<String>> result = null;
+            for (int i = 0; i < RUNS; i++) result = optimizing.run(source);
+            double optimizingMs = (System.nanoTime() - start) / 1e6 / RUNS;
+
+            boolean match = result.numVertices() == tree.numVertices();
+            for (String v : tree.vertices()) {
+                if (result.distance(v) != treeDistance(tree, v)) match = false;
+            }
+            System.out.printf("%-30s %10d %14.3f %10d %14.3f %10d %14.3f %d / %s%n", source, result.numVertices(),
+                    legacyMs, treeEdges(graph, tree), topDownMs, topDownEdges, optimizingMs,
+                    optimizing.getEdgesExamined(), match);
+        }
+    }
+}
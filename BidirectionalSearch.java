@@ -0,0 +1,128 @@
+import java.util.*;
+
+/**
+ * Point-to-point shortest paths over an IndexedGraph, searching forward from the start along out edges
+ * and backward from the end along in edges, always expanding the side with the smaller frontier,
+ * and stopping after the level on which the two searches first meet
+ * In a small-world graph both searches stay a few levels deep, so a query touches a small fraction
+ * of the vertices. Buffers are allocated once and reused, clearing only what the last query touched
+ *
+ * @param <V>	the type of vertices
+ * @param <E>	the type of edge labels
+ */
+public class BidirectionalSearch<V,E> {
+    private final IndexedGraph<V,E> graph;
+    private final Side forward, backward;
+
+    /** State of the search from one end */
+    private class Side {
+        final boolean out;		// whether this side follows out edges (forward) or in edges (backward)
+        final int[] parent;		// id of the neighbor each vertex was reached from, -1 for the end itself
+        final int[] dist;		// distance from this side's end, valid for visited vertices
+        final int[] queue;		// visited vertices in BFS order
+        final long[] visited;	// bitset over vertex ids
+        int reached;			// how many vertices are in the queue
+        int levelStart;			// queue[levelStart..reached) is the current frontier
+
+        Side(int n, boolean out) {
+            this.out = out;
+            parent = new int[n];
+            dist = new int[n];
+            queue = new int[n];
+            visited = new long[(n + 63) >>> 6];
+        }
+
+        boolean isVisited(int v) {
+            return (visited[v >>> 6] & (1L << v)) != 0;
+        }
+
+        void visit(int v, int from, int d) {
+            visited[v >>> 6] |= 1L << v;
+            parent[v] = from;
+            dist[v] = d;
+            queue[reached++] = v;
+        }
+
+        void start(int end) {
+            for (int i = 0; i < reached; i++) visited[queue[i] >>> 6] = 0;
+            reached = 0;
+            levelStart = 0;
+            visit(end, -1, 0);
+        }
+
+        int frontier() {
+            return reached - levelStart;
+        }
+    }
+
+    /**
+     * Allocates the buffers for searches over the graph
+     *
+     * @param graph graph to search, whose vertex ids must not change while this is in use
+     */
+    public BidirectionalSearch(IndexedGraph<V,E> graph) {
+        this.graph = graph;
+        forward = new Side(graph.vertexIdBound(), true);
+        backward = new Side(graph.vertexIdBound(), false);
+    }
+
+    /**
+     * Finds a shortest path
+     *
+     * @param from start vertex
+     * @param to end vertex
+     * @return the path with its edge labels, or null if there is none
+     */
+    public ShortestPath<V,E> find(V from, V to) {
+        int s = graph.vertexId(from), t = graph.vertexId(to);
+        if (s < 0) throw new IllegalArgumentException("Not a vertex: " + from);
+        if (t < 0) throw new IllegalArgumentException("Not a vertex: " + to);
+        forward.start(s);
+        backward.start(t);
+        int meet = s == t ? s : -1;
+        while (meet < 0 && forward.frontier() > 0 && backward.frontier() > 0) {
+            meet = forward.frontier() <= backward.frontier() ? expand(forward, backward) : expand(backward, forward);
+        }
+        return meet < 0 ? null : path(meet);
+    }
+
+    /**
+     * Expands the whole current level of one side
+     *
+     * @return the vertex where the shortest meeting found on this level joins the two searches, or -1
+     */
+    private int expand(Side side, Side other) {
+        int levelEnd = side.reached, meet = -1, best = Integer.MAX_VALUE;
+        for (int i = side.levelStart; i < levelEnd; i++) {
+            int u = side.queue[i];
+            int d = side.dist[u] + 1;
+            int degree = side.out ? graph.outDegreeOf(u) : graph.inDegreeOf(u);
+            for (int k = 0; k < degree; k++) {
+                int v = side.out ? graph.outNeighborAt(u, k) : graph.inNeighborAt(u, k);
+                if (side.isVisited(v)) continue;
+                side.visit(v, u, d);
+                if (other.isVisited(v) && d + other.dist[v] < best) {
+                    best = d + other.dist[v];
+                    meet = v;
+                }
+            }
+        }
+        side.levelStart = levelEnd;
+        return meet;
+    }
+
+    /** Joins the forward path to the meeting vertex with the backward path from it */
+    private ShortestPath<V,E> path(int meet) {
+        List<Integer> ids = new ArrayList<>();
+        for (int u = meet; u >= 0; u = forward.parent[u]) ids.add(u);
+        Collections.reverse(ids);
+        for (int u = backward.parent[meet]; u >= 0; u = backward.parent[u]) ids.add(u);
+        List<V> vertices = new ArrayList<>(ids.size());
+        List<E> labels = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            vertices.add(graph.vertexAt(ids.get(i)));
+            if (i > 0) labels.add(graph.getLabel(vertices.get(i - 1), vertices.get(i)));
+        }
+        return new ShortestPath<V,E>(vertices, labels);
+    }
+}
@@ -0,0 +1,285 @@
+import java.util.*;
+
+/**
+ * Co-star graph stored as a bipartite actor-movie graph: each actor lists its movies and each movie
+ * lists its cast, in CSR arrays, so memory is linear in the total cast size instead of quadratic in
+ * the size of each cast
+ * Through the Graph interface it looks exactly like the clique graph BaconGame.buildGraph makes:
+ * actors are the vertices, co-stars are neighbors, and an edge's label is the set of titles the
+ * two actors share, all worked out from the movie lists when asked for
+ * Co-star counts are kept per actor; a co-star list is built when asked for and kept per thread, so
+ * walking one actor's neighbors by index builds it once
+ * Traversals should use BipartiteSearch, which walks actor -> movie -> actor and counts the two
+ * hops as one step, expanding each movie once
+ */
+public class BipartiteGraph implements IndexedGraph<String, Set<String>> {
+    private final String[] names;		// actor id -> name
+    private final Map<String, Integer> ids;	// name -> actor id
+    private final String[] titles;		// movie id -> title
+    protected final int[] actorOffsets;	// movies of actor a are actorMovies[actorOffsets[a]..actorOffsets[a+1]), sorted
+    protected final int[] actorMovies;
+    protected final int[] castOffsets;	// cast of movie m is castActors[castOffsets[m]..castOffsets[m+1]), sorted
+    protected final int[] castActors;
+    private final int[] degrees;		// number of distinct co-stars of each actor
+    private final long numEdges;
+    private final ThreadLocal<Row> lastRow = new ThreadLocal<>();	// co-stars of the actor each thread asked about last
+
+    /** Distinct co-stars of one actor */
+    private static class Row {
+        final int actor;
+        final int[] costars;
+
+        Row(int actor, int[] costars) {
+            this.actor = actor;
+            this.costars = costars;
+        }
+    }
+
+    /**
+     * Builds the graph from the maps read from the input files
+     *
+     * @param actors actor names by ID
+     * @param movies movie titles by ID
+     * @param movieActors actor IDs by movie ID
+     */
+    public BipartiteGraph(Map<String, String> actors, Map<String, String> movies, Map<String, Set<String>> movieActors) {
+        List<String> order = new ArrayList<>();
+        ids = new HashMap<>();
+        for (String id : actors.keySet()) {
+            String name = actors.get(id);
+            if (!ids.containsKey(name)) {
+                ids.put(name, order.size());
+                order.add(name);
+            }
+        }
+        names = order.toArray(new String[0]);
+
+        // cast lists, as actor ids without repeats; movies nobody in the actors file is in are left out
+        List<String> movieTitles = new ArrayList<>();
+        List<int[]> casts = new ArrayList<>();
+        int castTotal = 0;
+        for (String movieID : movieActors.keySet()) {
+            int[] cast = new int[movieActors.get(movieID).size()];
+            int size = 0;
+            for (String id : movieActors.get(movieID)) {
+                if (actors.containsKey(id)) cast[size++] = ids.get(actors.get(id));
+            }
+            Arrays.sort(cast, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || cast[distinct - 1] != cast[i]) cast[distinct++] = cast[i];
+            }
+            if (distinct == 0) continue;
+            movieTitles.add(movies.get(movieID));
+            casts.add(Arrays.copyOf(cast, distinct));
+            castTotal += distinct;
+        }
+        titles = movieTitles.toArray(new String[0]);
+        castOffsets = new int[titles.length + 1];
+        castActors = new int[castTotal];
+        actorOffsets = new int[names.length + 1];
+        for (int m = 0; m < titles.length; m++) {
+            int[] cast = casts.get(m);
+            castOffsets[m + 1] = castOffsets[m] + cast.length;
+            System.arraycopy(cast, 0, castActors, castOffsets[m], cast.length);
+            for (int a : cast) actorOffsets[a + 1]++;
+        }
+        for (int a = 0; a < names.length; a++) actorOffsets[a + 1] += actorOffsets[a];
+        actorMovies = new int[castTotal];
+        int[] next = Arrays.copyOf(actorOffsets, names.length);
+        for (int m = 0; m < titles.length; m++) {	// movies in increasing order, so each actor's list is sorted
+            for (int i = castOffsets[m]; i < castOffsets[m + 1]; i++) actorMovies[next[castActors[i]]++] = m;
+        }
+
+        // co-star counts up front, marking each co-star once, so degree queries never build a row
+        degrees = new int[names.length];
+        int[] mark = new int[names.length];	// a + 1 once counted for actor a
+        long total = 0;
+        for (int a = 0; a < names.length; a++) {
+            for (int i = actorOffsets[a]; i < actorOffsets[a + 1]; i++) {
+                int m = actorMovies[i];
+                for (int j = castOffsets[m]; j < castOffsets[m + 1]; j++) {
+                    int b = castActors[j];
+                    if (b != a && mark[b] != a + 1) {
+                        mark[b] = a + 1;
+                        degrees[a]++;
+                    }
+                }
+            }
+            total += degrees[a];
+        }
+        numEdges = total;
+    }
+
+    /** How many movies there are */
+    public int numMovies() {
+        return titles.length;
+    }
+
+    /** The title of the movie with the given id */
+    public String movieAt(int movie) {
+        return titles[movie];
+    }
+
+    /** Total cast size: the number of actor-movie links */
+    public int numLinks() {
+        return castActors.length;
+    }
+
+    /** Distinct co-stars of an actor, sorted, from the casts of its movies */
+    private int[] costars(int actor) {
+        Row row = lastRow.get();
+        if (row != null && row.actor == actor) return row.costars;
+        int total = 0;
+        for (int i = actorOffsets[actor]; i < actorOffsets[actor + 1]; i++) {
+            int m = actorMovies[i];
+            total += castOffsets[m + 1] - castOffsets[m];
+        }
+        int[] all = new int[total];
+        int size = 0;
+        for (int i = actorOffsets[actor]; i < actorOffsets[actor + 1]; i++) {
+            int m = actorMovies[i];
+            for (int j = castOffsets[m]; j < castOffsets[m + 1]; j++) all[size++] = castActors[j];
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (all[i] != actor && (distinct == 0 || all[distinct - 1] != all[i])) all[distinct++] = all[i];
+        }
+        int[] costars = Arrays.copyOf(all, distinct);
+        lastRow.set(new Row(actor, costars));
+        return costars;
+    }
+
+    /** Titles of the movies both actors are in, or null if there are none */
+    private Set<String> shared(int a, int b) {
+        Set<String> label = null;
+        int i = actorOffsets[a], iEnd = actorOffsets[a + 1], j = actorOffsets[b], jEnd = actorOffsets[b + 1];
+        while (i < iEnd && j < jEnd) {
+            if (actorMovies[i] < actorMovies[j]) i++;
+            else if (actorMovies[i] > actorMovies[j]) j++;
+            else {
+                if (label == null) label = new HashSet<>();
+                label.add(titles[actorMovies[i]]);
+                i++;
+                j++;
+            }
+        }
+        return label;
+    }
+
+    private int id(String v) {
+        Integer id = ids.get(v);
+        if (id == null) throw new IllegalArgumentException("Not a vertex: " + v);
+        return id;
+    }
+
+    public int vertexIdBound() {
+        return names.length;
+    }
+
+    public int vertexId(String v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    public String vertexAt(int id) {
+        return names[id];
+    }
+
+    public int outDegreeOf(int id) {
+        return degrees[id];
+    }
+
+    public int outNeighborAt(int id, int k) {
+        return costars(id)[k];
+    }
+
+    public int inDegreeOf(int id) {
+        return outDegreeOf(id);
+    }
+
+    public int inNeighborAt(int id, int k) {
+        return outNeighborAt(id, k);
+    }
+
+    public int numVertices() {
+        return names.length;
+    }
+
+    public int numEdges() {
+        return (int) numEdges;
+    }
+
+    public Iterable<String> vertices() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    public boolean hasVertex(String v) {
+        return ids.containsKey(v);
+    }
+
+    public int outDegree(String v) {
+        return outDegreeOf(id(v));
+    }
+
+    public int inDegree(String v) {
+        return outDegreeOf(id(v));
+    }
+
+    public Iterable<String> outNeighbors(String v) {
+        int[] costars = costars(id(v));
+        return new AbstractList<String>() {
+            public String get(int i) {
+                return names[costars[i]];
+            }
+
+            public int size() {
+                return costars.length;
+            }
+        };
+    }
+
+    public Iterable<String> inNeighbors(String v) {
+        return outNeighbors(v);
+    }
+
+    public boolean hasEdge(String u, String v) {
+        return getLabel(u, v) != null;
+    }
+
+    public Set<String> getLabel(String u, String v) {
+        Integer a = ids.get(u), b = ids.get(v);
+        if (a == null || b == null || a.equals(b)) return null;
+        return shared(a, b);
+    }
+
+    public void insertVertex(String v) {
+        throw new UnsupportedOperationException("BipartiteGraph is read-only");
+    }
+
+    public void insertDirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("BipartiteGraph is read-only");
+    }
+
+    public void insertUndirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("BipartiteGraph is read-only");
+    }
+
+    public void removeVertex(String v) {
+        throw new UnsupportedOperationException("BipartiteGraph is read-only");
+    }
+
+    public void removeDirected(String u, String v) {
+        throw new UnsupportedOperationException("BipartiteGraph is read-only");
+    }
+
+    public void removeUndirected(String u, String v) {
+        throw new UnsupportedOperationException("BipartiteGraph is read-only");
+    }
+
+    public String toString() {
+        return "BipartiteGraph: " + names.length + " actors, " + titles.length + " movies, "
+                + castActors.length + " actor-movie links";
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Breadth-first search over a BipartiteGraph that goes actor -> movie -> actor, counting the two hops
+ * as one step, so distances, level counts and trees are the same as on the clique graph
+ * Each movie is expanded once, the first time one of its cast is dequeued, so a run costs time
+ * linear in the total cast size rather than in the number of co-star pairs
+ *
+ * Direction optimizing is ignored: every level is expanded top-down
+ */
+public class BipartiteSearch extends BreadthFirstSearch<String, Set<String>> {
+    private final BipartiteGraph bipartite;
+    private final long[] expanded;	// bitset over movie ids
+    private final int[] movies;		// movies expanded by the last run, for clearing
+    private int numExpanded;
+
+    /**
+     * Allocates the buffers for searches over the graph
+     *
+     * @param graph graph to search
+     */
+    public BipartiteSearch(BipartiteGraph graph) {
+        super(graph);
+        bipartite = graph;
+        expanded = new long[(graph.numMovies() + 63) >>> 6];
+        movies = new int[graph.numMovies()];
+    }
+
+    public ShortestPathTree<String, Set<String>> run(int s) {
+        clear();
+        source = s;
+        generation++;
+        edgesExamined = 0;
+        visit(s, -1, 0);
+        int[] actorOffsets = bipartite.actorOffsets, actorMovies = bipartite.actorMovies;
+        int[] castOffsets = bipartite.castOffsets, castActors = bipartite.castActors;
+        int head = 0;
+        while (head < reached) {
+            int u = queue[head++];
+            int d = dist[u] + 1;
+            for (int i = actorOffsets[u]; i < actorOffsets[u + 1]; i++) {
+                int m = actorMovies[i];
+                if ((expanded[m >>> 6] & (1L << m)) != 0) continue;
+                expanded[m >>> 6] |= 1L << m;
+                movies[numExpanded++] = m;
+                edgesExamined += castOffsets[m + 1] - castOffsets[m];
+                for (int j = castOffsets[m]; j < castOffsets[m + 1]; j++) {
+                    int v = castActors[j];
+                    if (!isVisited(v)) visit(v, u, d);
+                }
+            }
+        }
+        Metrics.traversal("search", reached, edgesExamined);
+        return new ShortestPathTree<String, Set<String>>(this);
+    }
+
+    protected void clear() {
+        super.clear();
+        if (numExpanded > movies.length / 8) Arrays.fill(expanded, 0);
+        else for (int i = 0; i < numExpanded; i++) expanded[movies[i] >>> 6] = 0;
+        numExpanded = 0;
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * Breadth-first search over an IndexedGraph that keeps all of its state in arrays indexed by vertex id:
+ * parent and distance of each vertex, a bitset of visited vertices, and an int queue that is never
+ * compacted, so after a run it also holds the reached vertices in visit order
+ * The arrays are allocated once and reused by every run; clearing only touches the vertices the
+ * previous run reached, so repeated runs allocate nothing but the small tree view
+ * Each run also counts the vertices found at each distance, so separation statistics come out of
+ * the search itself without another pass over the tree
+ * Optionally direction-optimizing (Beamer et al.): once the frontier's edges outweigh a fraction of the
+ * unexplored edges, a level is expanded bottom-up, each unvisited vertex looking for a parent among its
+ * in-neighbors, and it goes back to top-down when the frontier shrinks again. Distances are the same
+ * either way; parents may differ among equally short choices
+ *
+ * @param <V>	the type of vertices
+ * @param <E>	the type of edge labels
+ */
+public class BreadthFirstSearch<V,E> {
+    private static final int ALPHA = 14;	// go bottom-up when frontier edges > unexplored edges / ALPHA
+    private static final int BETA = 24;	// go back top-down when frontier vertices < vertices / BETA
+
+    protected final IndexedGraph<V,E> graph;
+    protected final int[] parent;		// id of the vertex each vertex was discovered from, -1 for the source
+    protected final int[] dist;		// distance from the source, valid for visited vertices
+    protected final int[] queue;		// visited vertices in BFS order; queue[0] is the source
+    protected final long[] visited;	// bitset over vertex ids
+    protected final int[] levelCounts;	// how many vertices the last run found at each distance
+    protected int depth;			// greatest distance found by the last run
+    protected int reached;			// how many vertices the last run visited
+    protected int source = -1;		// source of the last run
+    protected int generation;		// bumped on every run, so stale tree views can be detected
+    protected boolean directionOptimizing;	// whether to switch to bottom-up levels on large frontiers
+    protected long edgesExamined;		// edges looked at by the last run
+
+    /**
+     * Allocates the buffers for searches over the graph
+     *
+     * @param graph graph to search, whose vertex ids must not change while this is in use
+     */
+    public BreadthFirstSearch(IndexedGraph<V,E> graph) {
+        this.graph = graph;
+        int n = graph.vertexIdBound();
+        parent = new int[n];
+        dist = new int[n];
+        queue = new int[n];
+        visited = new long[(n + 63) >>> 6];
+        levelCounts = new int[n + 1];
+    }
+
+    /**
+     * Makes the best search for a graph: a BipartiteSearch for a BipartiteGraph, else a plain one
+     *
+     * @param graph graph to search
+     * @return new search with its own buffers
+     */
+    @SuppressWarnings("unchecked")
+    public static <V,E> BreadthFirstSearch<V,E> forGraph(IndexedGraph<V,E> graph) {
+        if (graph instanceof BipartiteGraph) return (BreadthFirstSearch<V,E>) (Object) new BipartiteSearch((BipartiteGraph) graph);
+        return new BreadthFirstSearch<V,E>(graph);
+    }
+
+    public IndexedGraph<V,E> getGraph() {
+        return graph;
+    }
+
+    public boolean isDirectionOptimizing() {
+        return directionOptimizing;
+    }
+
+    public void setDirectionOptimizing(boolean directionOptimizing) {
+        this.directionOptimizing = directionOptimizing;
+    }
+
+    /** How many edges the last run looked at */
+    public long getEdgesExamined() {
+        return edgesExamined;
+    }
+
+    /**
+     * Runs the search from a source vertex
+     *
+     * @param source start vertex
+     * @return view of the shortest-path tree, valid until the next run
+     */
+    public ShortestPathTree<V,E> run(V source) {
+        int id = graph.vertexId(source);
+        if (id < 0) throw new IllegalArgumentException("Not a vertex: " + source);
+        return run(id);
+    }
+
+    /**
+     * Runs the search from the vertex with the given id
+     *
+     * @param s id of the start vertex
+     * @return view of the shortest-path tree, valid until the next run
+     */
+    public ShortestPathTree<V,E> run(int s) {
+        clear();
+        source = s;
+        generation++;
+        edgesExamined = 0;
+        visit(s, -1, 0);
+        if (directionOptimizing) {
+            runByLevels();
+        } else {
+            int head = 0;
+            while (head < reached) {
+                int u = queue[head++];
+                int d = dist[u] + 1;
+                int degree = graph.outDegreeOf(u);
+                edgesExamined += degree;
+                for (int k = 0; k < degree; k++) {
+                    int v = graph.outNeighborAt(u, k);
+                    if (!isVisited(v)) visit(v, u, d);
+                }
+            }
+        }
+        Metrics.traversal("search", reached, edgesExamined);
+        return new ShortestPathTree<V,E>(this);
+    }
+
+    /**
+     * Expands one level at a time, choosing top-down or bottom-up for each level
+     * from the size of the frontier (queue[levelStart..levelEnd))
+     */
+    private void runByLevels() {
+        int n = graph.vertexIdBound();
+        long unexplored = 0;	// edges out of vertices not yet visited
+        for (int v = 0; v < n; v++) unexplored += graph.outDegreeOf(v);
+        unexplored -= graph.outDegreeOf(source);
+        long frontierEdges = graph.outDegreeOf(source);
+        boolean bottomUp = false;
+        int levelStart = 0, levelEnd = reached, depth = 0;
+        while (levelStart < levelEnd) {
+            int frontier = levelEnd - levelStart;
+            if (!bottomUp && frontierEdges > unexplored / ALPHA) bottomUp = true;
+            else if (bottomUp && frontier < n / BETA) bottomUp = false;
+            if (bottomUp) stepBottomUp(depth);
+            else stepTopDown(levelStart, levelEnd);
+            levelStart = levelEnd;
+            levelEnd = reached;
+            depth++;
+            frontierEdges = 0;
+            for (int i = levelStart; i < levelEnd; i++) frontierEdges += graph.outDegreeOf(queue[i]);
+            unexplored -= frontierEdges;
+        }
+    }
+
+    /** Visits the unvisited out-neighbors of the frontier */
+    private void stepTopDown(int levelStart, int levelEnd) {
+        for (int i = levelStart; i < levelEnd; i++) {
+            int u = queue[i];
+            int d = dist[u] + 1;
+            int degree = graph.outDegreeOf(u);
+            edgesExamined += degree;
+            for (int k = 0; k < degree; k++) {
+                int v = graph.outNeighborAt(u, k);
+                if (!isVisited(v)) visit(v, u, d);
+            }
+        }
+    }
+
+    /** Has every unvisited vertex look for an in-neighbor on the frontier, at the given depth */
+    private void stepBottomUp(int depth) {
+        int n = graph.vertexIdBound();
+        for (int w = 0; w < visited.length; w++) {
+            long unvisited = ~visited[w];
+            while (unvisited != 0) {
+                int v = (w << 6) + Long.numberOfTrailingZeros(unvisited);
+                unvisited &= unvisited - 1;
+                if (v >= n) break;
+                int degree = graph.inDegreeOf(v);
+                for (int k = 0; k < degree; k++) {
+                    int u = graph.inNeighborAt(v, k);
+                    edgesExamined++;
+                    // vertices found earlier in this step are at depth + 1, so they are not parents
+                    if (isVisited(u) && dist[u] == depth) {
+                        visit(v, u, depth + 1);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Distance from the last run's source to the vertex with the given id, or -1 if it was not reached */
+    public int distanceTo(int v) {
+        return isVisited(v) ? dist[v] : -1;
+    }
+
+    /** Marks v as reached from u at distance d and enqueues it */
+    protected final void visit(int v, int u, int d) {
+        visited[v >>> 6] |= 1L << v;
+        parent[v] = u;
+        dist[v] = d;
+        queue[reached++] = v;
+        levelCounts[d]++;
+        if (d > depth) depth = d;
+    }
+
+    protected final boolean isVisited(int v) {
+        return (visited[v >>> 6] & (1L << v)) != 0;
+    }
+
+    /** Forgets the previous run, touching only the vertices it reached */
+    protected void clear() {
+        for (int i = 0; i < reached; i++) {
+            visited[queue[i] >>> 6] = 0;
+        }
+        if (reached > 0) Arrays.fill(levelCounts, 0, depth + 1, 0);
+        reached = 0;
+        depth = 0;
+    }
+}
@@ -0,0 +1,235 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * All-sources average separation (the measure behind the "c" command), computed by a fixed pool of
+ * workers that each own their BFS buffers and write into one shared result array
+ * Sources are handed out in chunks from a shared counter, so uneven components balance out
+ * The bit-parallel mode runs 64 sources per pass, one bit of a long per source, so each pass scans
+ * the edges once for all 64 (multi-source BFS, Then et al.)
+ */
+public class ClosenessCentrality {
+    private static final int CHUNK = 64;	// sources claimed by a worker at a time; also sources per bit-parallel pass
+
+    /**
+     * Average separation from every vertex by one BFS per source
+     *
+     * @param graph graph to measure
+     * @param target id of a vertex that must be reachable from a source for it to count, or -1 for none
+     * @param threads number of workers
+     * @return average separation by source id (itself included in the average), NaN where target is not reachable
+     */
+    public static <V,E> double[] averageSeparations(IndexedGraph<V,E> graph, int target, int threads) {
+        int n = graph.vertexIdBound();
+        double[] result = new double[n];
+        AtomicInteger next = new AtomicInteger();
+        runWorkers(threads, () -> {
+            BreadthFirstSearch<V,E> search = BreadthFirstSearch.forGraph(graph);	// this worker's buffers
+            for (int start; (start = next.getAndAdd(CHUNK)) < n; ) {
+                for (int s = start; s < Math.min(start + CHUNK, n); s++) {
+                    ShortestPathTree<V,E> tree = search.run(s);
+                    result[s] = target < 0 || search.isVisited(target) ? tree.averageSeparation() : Double.NaN;
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Average separation from some of the vertices, one BFS per source
+     *
+     * @param graph graph to measure
+     * @param sources ids of the vertices to measure
+     * @param threads number of workers
+     * @return average separation of each source, in the order given (itself included in the average)
+     */
+    public static <V,E> double[] averageSeparations(IndexedGraph<V,E> graph, int[] sources, int threads) {
+        double[] result = new double[sources.length];
+        AtomicInteger next = new AtomicInteger();
+        runWorkers(threads, () -> {
+            BreadthFirstSearch<V,E> search = BreadthFirstSearch.forGraph(graph);
+            for (int start; (start = next.getAndAdd(CHUNK)) < sources.length; ) {
+                for (int i = start; i < Math.min(start + CHUNK, sources.length); i++) {
+                    result[i] = search.run(sources[i]).averageSeparation();
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Average separation from every vertex by bit-parallel BFS, 64 sources per pass
+     *
+     * @param graph graph to measure
+     * @param target id of a vertex that must be reachable from a source for it to count, or -1 for none
+     * @param threads number of workers
+     * @return average separation by source id (itself included in the average), NaN where target is not reachable
+     */
+    public static <V,E> double[] averageSeparationsBitParallel(IndexedGraph<V,E> graph, int target, int threads) {
+        int n = graph.vertexIdBound();
+        double[] result = new double[n];
+        AtomicInteger next = new AtomicInteger();
+        runWorkers(threads, () -> {
+            // this worker's buffers: which sources have seen each vertex, reached it last level, reach it next level
+            long[] seen = new long[n], frontier = new long[n], reach = new long[n];
+            // on a bipartite graph, the sources that reached each movie, so levels go actor -> movie -> actor
+            long[] movieBits = graph instanceof BipartiteGraph ? new long[((BipartiteGraph) graph).numMovies()] : null;
+            long[] total = new long[CHUNK];
+            int[] count = new int[CHUNK];
+            for (int start; (start = next.getAndAdd(CHUNK)) < n; ) {
+                int batch = Math.min(CHUNK, n - start);
+                Arrays.fill(seen, 0);
+                Arrays.fill(frontier, 0);
+                Arrays.fill(total, 0);
+                Arrays.fill(count, 1);
+                for (int b = 0; b < batch; b++) {
+                    seen[start + b] |= 1L << b;
+                    frontier[start + b] |= 1L << b;
+                }
+                boolean active = true;
+                for (int level = 1; active; level++) {
+                    if (movieBits != null) reachThroughMovies((BipartiteGraph) graph, frontier, reach, movieBits);
+                    else for (int u = 0; u < n; u++) {
+                        long bits = frontier[u];
+                        if (bits == 0) continue;
+                        int degree = graph.outDegreeOf(u);
+                        for (int k = 0; k < degree; k++) reach[graph.outNeighborAt(u, k)] |= bits;
+                    }
+                    active = false;
+                    for (int v = 0; v < n; v++) {
+                        long fresh = reach[v] & ~seen[v];
+                        reach[v] = 0;
+                        frontier[v] = fresh;
+                        if (fresh == 0) continue;
+                        active = true;
+                        seen[v] |= fresh;
+                        for (long bits = fresh; bits != 0; bits &= bits - 1) {
+                            int b = Long.numberOfTrailingZeros(bits);
+                            total[b] += level;
+                            count[b]++;
+                        }
+                    }
+                }
+                for (int b = 0; b < batch; b++) {
+                    boolean counts = target < 0 || (seen[target] & (1L << b)) != 0;
+                    result[start + b] = counts ? (double) total[b] / count[b] : Double.NaN;
+                }
+            }
+        });
+        return result;
+    }
+
+    /** Adds the frontier bits of each actor to its co-stars through their shared movies, expanding each movie once */
+    private static void reachThroughMovies(BipartiteGraph graph, long[] frontier, long[] reach, long[] movieBits) {
+        int[] actorOffsets = graph.actorOffsets, actorMovies = graph.actorMovies;
+        int[] castOffsets = graph.castOffsets, castActors = graph.castActors;
+        for (int a = 0; a < frontier.length; a++) {
+            long bits = frontier[a];
+            if (bits == 0) continue;
+            for (int i = actorOffsets[a]; i < actorOffsets[a + 1]; i++) movieBits[actorMovies[i]] |= bits;
+        }
+        for (int m = 0; m < movieBits.length; m++) {
+            long bits = movieBits[m];
+            if (bits == 0) continue;
+            movieBits[m] = 0;
+            for (int j = castOffsets[m]; j < castOffsets[m + 1]; j++) reach[castActors[j]] |= bits;
+        }
+    }
+
+    /**
+     * The k vertices with the lowest average separation among those connected to a target, exactly,
+     * by pruned BFS (Bergamini et al.): vertices are searched in decreasing degree order, and a search
+     * stops as soon as a lower bound on the vertex's total distance exceeds the k-th best found so far
+     * After level d, with r vertices reached and total distance t, the next level holds at most
+     * x = min(sum over the level of (degree - 1), m - r) of the m vertices, and the rest are farther, so
+     * the total is at least t + (d + 1) x + (d + 2)(m - r - x)
+     * All candidates share the target's component, so ranking by total distance is ranking by average
+     * separation; ties go to the name (toString) that sorts first, as in getAvg
+     *
+     * @param graph undirected graph to measure
+     * @param target id of the vertex whose component is ranked, or -1 for none
+     * @param k how many to return
+     * @return ids of the best vertices, best first; empty when k <= 0 or there is no target
+     */
+    public static <V,E> int[] topK(IndexedGraph<V,E> graph, int target, int k) {
+        if (k <= 0 || target < 0) return new int[0];
+        int n = graph.vertexIdBound();
+        BreadthFirstSearch<V,E> search = BreadthFirstSearch.forGraph(graph);
+        ShortestPathTree<V,E> component = search.run(target);
+        int m = component.numVertices();
+        Integer[] order = new Integer[m];
+        int size = 0;
+        for (V v : component.vertices()) order[size++] = graph.vertexId(v);
+        Arrays.sort(order, (a, b) -> graph.outDegreeOf(b) != graph.outDegreeOf(a)
+                ? Integer.compare(graph.outDegreeOf(b), graph.outDegreeOf(a)) : Integer.compare(a, b));
+
+        // the best so far, worst on top: by total distance, then name
+        long[] total = new long[n];
+        Comparator<Integer> better = Comparator.comparingLong((Integer v) -> total[v])
+                .thenComparing(v -> String.valueOf(graph.vertexAt(v)));
+        PriorityQueue<Integer> best = new PriorityQueue<>(better.reversed());
+        int[] seen = new int[n];	// run number that last reached each vertex
+        int[] queue = new int[m];
+        int run = 0;
+        for (int v : order) {
+            run++;
+            long limit = best.size() < k ? Long.MAX_VALUE : total[best.peek()];
+            long sum = 0;
+            int reached = 1, levelStart = 0, depth = 0;
+            boolean pruned = false;
+            queue[0] = v;
+            seen[v] = run;
+            while (levelStart < reached) {
+                int levelEnd = reached;
+                long next = 0;	// upper bound on the size of the next level
+                for (int i = levelStart; i < levelEnd; i++) next += graph.outDegreeOf(queue[i]) - (depth == 0 ? 0 : 1);
+                long rest = m - reached, x = Math.min(Math.max(next, 0), rest);
+                if (sum + (depth + 1) * x + (depth + 2) * (rest - x) > limit) {
+                    pruned = true;
+                    break;
+                }
+                for (int i = levelStart; i < levelEnd; i++) {
+                    int u = queue[i], degree = graph.outDegreeOf(u);
+                    for (int j = 0; j < degree; j++) {
+                        int w = graph.outNeighborAt(u, j);
+                        if (seen[w] != run) {
+                            seen[w] = run;
+                            queue[reached++] = w;
+                        }
+                    }
+                }
+                depth++;
+                sum += (long) depth * (reached - levelEnd);
+                levelStart = levelEnd;
+            }
+            if (pruned) continue;
+            total[v] = sum;
+            if (best.size() < k) best.add(v);
+            else if (k > 0 && better.compare(v, best.peek()) < 0) {
+                best.poll();
+                best.add(v);
+            }
+        }
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) result[i] = best.poll();
+        return result;
+    }
+
+    /** Runs the worker body on the given number of threads and waits for all of them */
+    static void runWorkers(int threads, Runnable worker) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) futures.add(pool.submit(worker));
+            for (Future<?> future : futures) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing separations", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Separation worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
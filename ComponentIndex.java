@@ -0,0 +1,135 @@
+import java.util.*;
+
+/**
+ * Connected components of an undirected IndexedGraph, found once with union-find, so reachability
+ * questions need no traversal: whether two vertices are connected and how big a component is are
+ * O(1), and listing a component or everything outside it takes time proportional to the output
+ * Vertex ids are grouped by component in one array, so each component is a contiguous range of it
+ *
+ * @param <V>	the type of vertices
+ */
+public class ComponentIndex<V> {
+    private final IndexedGraph<V, ?> graph;
+    private final int[] component;	// component number of each vertex id, -1 for an id with no vertex
+    private final int[] starts;		// members of component c are members[starts[c]..starts[c+1])
+    private final int[] members;	// vertex ids grouped by component
+
+    /**
+     * Finds the components of a graph
+     *
+     * @param graph undirected graph, whose vertex ids must not change while this is in use
+     */
+    public ComponentIndex(IndexedGraph<V, ?> graph) {
+        this.graph = graph;
+        int n = graph.vertexIdBound();
+        int[] root = new int[n], size = new int[n];
+        for (int v = 0; v < n; v++) {
+            root[v] = v;
+            size[v] = 1;
+        }
+        for (int u = 0; u < n; u++) {
+            int degree = graph.outDegreeOf(u);
+            for (int k = 0; k < degree; k++) {
+                int a = find(root, u), b = find(root, graph.outNeighborAt(u, k));
+                if (a == b) continue;
+                if (size[a] < size[b]) {	// union by size
+                    int t = a;
+                    a = b;
+                    b = t;
+                }
+                root[b] = a;
+                size[a] += size[b];
+            }
+        }
+        // number the components and group their members with a counting sort
+        component = new int[n];
+        int[] number = new int[n];
+        Arrays.fill(number, -1);
+        int count = 0;
+        boolean holes = graph.numVertices() < n;	// ids of removed vertices, in a ConcurrentGraph snapshot
+        for (int v = 0; v < n; v++) {
+            if (holes && graph.vertexAt(v) == null) {
+                component[v] = -1;
+                continue;
+            }
+            int r = find(root, v);
+            if (number[r] < 0) number[r] = count++;
+            component[v] = number[r];
+        }
+        starts = new int[count + 1];
+        for (int v = 0; v < n; v++) if (component[v] >= 0) starts[component[v] + 1]++;
+        for (int c = 0; c < count; c++) starts[c + 1] += starts[c];
+        members = new int[starts[count]];
+        int[] next = Arrays.copyOf(starts, count);
+        for (int v = 0; v < n; v++) if (component[v] >= 0) members[next[component[v]]++] = v;
+    }
+
+    /** Union-find root of v, halving the path on the way */
+    private static int find(int[] root, int v) {
+        while (root[v] != v) {
+            root[v] = root[root[v]];
+            v = root[v];
+        }
+        return v;
+    }
+
+    private int id(V v) {
+        int id = graph.vertexId(v);
+        if (id < 0) throw new IllegalArgumentException("Not a vertex: " + v);
+        return id;
+    }
+
+    /** How many connected components there are */
+    public int numComponents() {
+        return starts.length - 1;
+    }
+
+    /** Whether there is a path between u and v */
+    public boolean connected(V u, V v) {
+        return component[id(u)] == component[id(v)];
+    }
+
+    /** How many vertices are in v's component, v included */
+    public int componentSize(V v) {
+        int c = component[id(v)];
+        return starts[c + 1] - starts[c];
+    }
+
+    /** The vertices in v's component */
+    public Iterable<V> component(V v) {
+        int c = component[id(v)];
+        return range(starts[c], starts[c + 1], starts[c + 1], starts[c + 1]);
+    }
+
+    /** How many vertices have no path to v */
+    public int numUnreachable(V v) {
+        return members.length - componentSize(v);
+    }
+
+    /** The vertices with no path to v, produced as they are iterated rather than collected */
+    public Iterable<V> unreachable(V v) {
+        int c = component[id(v)];
+        return range(0, starts[c], starts[c + 1], members.length);
+    }
+
+    /** The vertices with no path to v, as a set */
+    public Set<V> missingVertices(V v) {
+        Set<V> missing = new HashSet<V>();
+        for (V u : unreachable(v)) missing.add(u);
+        return missing;
+    }
+
+    /** The members in positions [from1, to1) and then [from2, to2) */
+    private List<V> range(int from1, int to1, int from2, int to2) {
+        int first = to1 - from1;
+        return new AbstractList<V>() {
+            public V get(int i) {
+                return graph.vertexAt(members[i < first ? from1 + i : from2 + i - first]);
+            }
+
+            public int size() {
+                return first + to2 - from2;
+            }
+        };
+    }
+}
@@ -0,0 +1,519 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Graph that any number of readers can traverse while a single writer edits it
+ * Readers work on immutable snapshots: snapshot() returns the latest published version, and nothing
+ * in it ever changes, so a whole traversal sees one consistent graph without taking a lock; a snapshot
+ * is an IndexedGraph, so the array-based searches run on it directly
+ * Writers take a lock and edit copy-on-write: a vertex's adjacency is copied the first time an edit
+ * touches it, and the vertex table is a two-level array of pages so only the touched pages are
+ * copied. Each edit is published as a new snapshot when it completes; update() groups many edits into
+ * one version, copying each touched vertex once
+ * Vertex ids are assigned on first insertion and kept for good, so a removed vertex leaves a hole
+ * (vertexAt is null, no edges) and gets its old id back if it is inserted again
+ * Edge labels are shared between versions, so they should not be changed in place
+ *
+ * @param <V>	the type of vertices
+ * @param <E>	the type of edge labels
+ */
+public class ConcurrentGraph<V,E> implements Graph<V,E> {
+    private static final int PAGE_BITS = 10, PAGE = 1 << PAGE_BITS;	// vertices per page of the table
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<V, Integer> ids = new ConcurrentHashMap<V, Integer>();	// permanent vertex -> id
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Snapshot<V,E> current;
+
+    // the version being written, guarded by writeLock
+    private Object[][] pages = new Object[1][];	// id -> Vertex, PAGE per page
+    private int nextId, numVertices, numEdges;
+    private long version;					// vertices and pages stamped with this are the writer's to change
+    private boolean rootOwned;				// whether pages is a copy made for this version
+    private final BitSet ownedPages = new BitSet();	// pages copied for this version
+    private int depth;						// nesting of edits, published when it drops to 0
+
+    /** A vertex and its adjacency; frozen once its version is published */
+    private static final class Vertex<V,E> {
+        final V vertex;
+        final long version;
+        final HashMap<V, E> out, in;		// neighbor -> label
+        int[] outIds, inIds;				// neighbor ids, in no particular order
+        int outCount, inCount;
+
+        Vertex(V vertex, long version) {
+            this.vertex = vertex;
+            this.version = version;
+            out = new HashMap<V, E>();
+            in = new HashMap<V, E>();
+            outIds = EMPTY;
+            inIds = EMPTY;
+        }
+
+        Vertex(Vertex<V,E> old, long version) {
+            vertex = old.vertex;
+            this.version = version;
+            out = new HashMap<V, E>(old.out);
+            in = new HashMap<V, E>(old.in);
+            outIds = Arrays.copyOf(old.outIds, old.outCount);
+            inIds = Arrays.copyOf(old.inIds, old.inCount);
+            outCount = old.outCount;
+            inCount = old.inCount;
+        }
+    }
+
+    /**
+     * One version of the graph, which never changes
+     * Lookups by vertex take a hash lookup; the id methods index arrays directly. Ids of removed vertices
+     * are holes below vertexIdBound(), with no vertex and no edges
+     */
+    public static final class Snapshot<V,E> implements IndexedGraph<V,E> {
+        private final Map<V, Integer> ids;
+        private final Object[][] pages;
+        private final int bound, numVertices, numEdges;
+        private final long version;
+
+        private Snapshot(Map<V, Integer> ids, Object[][] pages, int bound, int numVertices, int numEdges, long version) {
+            this.ids = ids;
+            this.pages = pages;
+            this.bound = bound;
+            this.numVertices = numVertices;
+            this.numEdges = numEdges;
+            this.version = version;
+        }
+
+        /** Number of edits published before this one */
+        public long getVersion() {
+            return version;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Vertex<V,E> at(int id) {
+            return (Vertex<V,E>) pages[id >>> PAGE_BITS][id & (PAGE - 1)];
+        }
+
+        private Vertex<V,E> of(V v) {
+            int id = vertexId(v);
+            if (id < 0) throw new IllegalArgumentException("Not a vertex: " + v);
+            return at(id);
+        }
+
+        public int numVertices() {
+            return numVertices;
+        }
+
+        public int numEdges() {
+            return numEdges;
+        }
+
+        public Iterable<V> vertices() {
+            return () -> new Iterator<V>() {
+                private int next = advance(0);
+
+                private int advance(int id) {
+                    while (id < bound && at(id) == null) id++;
+                    return id;
+                }
+
+                public boolean hasNext() {
+                    return next < bound;
+                }
+
+                public V next() {
+                    if (next >= bound) throw new NoSuchElementException();
+                    V v = at(next).vertex;
+                    next = advance(next + 1);
+                    return v;
+                }
+            };
+        }
+
+        public boolean hasVertex(V v) {
+            return vertexId(v) >= 0;
+        }
+
+        public int outDegree(V v) {
+            return of(v).outCount;
+        }
+
+        public int inDegree(V v) {
+            return of(v).inCount;
+        }
+
+        public Iterable<V> outNeighbors(V v) {
+            return Collections.unmodifiableSet(of(v).out.keySet());
+        }
+
+        public Iterable<V> inNeighbors(V v) {
+            return Collections.unmodifiableSet(of(v).in.keySet());
+        }
+
+        public boolean hasEdge(V u, V v) {
+            return of(u).out.containsKey(v);
+        }
+
+        public E getLabel(V u, V v) {
+            return of(u).out.get(v);
+        }
+
+        public int vertexIdBound() {
+            return bound;
+        }
+
+        public int vertexId(V v) {
+            Integer id = ids.get(v);
+            return id == null || id >= bound || at(id) == null ? -1 : id;
+        }
+
+        public V vertexAt(int id) {
+            Vertex<V,E> vertex = at(id);
+            return vertex == null ? null : vertex.vertex;
+        }
+
+        public int outDegreeOf(int id) {
+            Vertex<V,E> vertex = at(id);
+            return vertex == null ? 0 : vertex.outCount;
+        }
+
+        public int outNeighborAt(int id, int k) {
+            return at(id).outIds[k];
+        }
+
+        public int inDegreeOf(int id) {
+            Vertex<V,E> vertex = at(id);
+            return vertex == null ? 0 : vertex.inCount;
+        }
+
+        public int inNeighborAt(int id, int k) {
+            return at(id).inIds[k];
+        }
+
+        public void forEachOutNeighbor(int id, IntConsumer action) {
+            Vertex<V,E> vertex = at(id);
+            if (vertex == null) return;
+            for (int k = 0; k < vertex.outCount; k++) action.accept(vertex.outIds[k]);
+        }
+
+        public void forEachInNeighbor(int id, IntConsumer action) {
+            Vertex<V,E> vertex = at(id);
+            if (vertex == null) return;
+            for (int k = 0; k < vertex.inCount; k++) action.accept(vertex.inIds[k]);
+        }
+
+        public void insertVertex(V v) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        public void insertDirected(V u, V v, E e) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        public void insertUndirected(V u, V v, E e) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        public void removeVertex(V v) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        public void removeDirected(V u, V v) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        public void removeUndirected(V u, V v) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        public String toString() {
+            return "Snapshot " + version + ": " + numVertices + " vertices, " + numEdges + " edges";
+        }
+    }
+
+    /**
+     * Default constructor, creating an empty graph
+     */
+    public ConcurrentGraph() {
+        current = draft();
+    }
+
+    /**
+     * Copies an existing graph as the first version
+     *
+     * @param g graph to copy
+     */
+    public ConcurrentGraph(Graph<V,E> g) {
+        this();
+        update(graph -> {
+            for (V v : g.vertices()) insertVertex(v);
+            for (V u : g.vertices()) {
+                for (V v : g.outNeighbors(u)) insertDirected(u, v, g.getLabel(u, v));
+            }
+        });
+    }
+
+    /**
+     * The latest published version, to traverse without locking; the writing thread, in the middle of
+     * an edit, gets its own unpublished changes instead
+     */
+    public Snapshot<V,E> snapshot() {
+        return writeLock.isHeldByCurrentThread() ? draft() : current;
+    }
+
+    /**
+     * Applies a group of edits as one version: readers see all of them or none
+     *
+     * @param edits calls the mutators of the graph it is given, which is this graph
+     */
+    public void update(Consumer<? super ConcurrentGraph<V,E>> edits) {
+        edit(() -> edits.accept(this));
+    }
+
+    /** Runs an edit under the write lock, publishing the version once the outermost edit is done */
+    private void edit(Runnable edits) {
+        writeLock.lock();
+        try {
+            depth++;
+            try {
+                edits.run();
+            } finally {
+                if (--depth == 0) publish();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void publish() {
+        current = draft();
+        version++;
+        rootOwned = false;
+        ownedPages.clear();
+    }
+
+    private Snapshot<V,E> draft() {
+        return new Snapshot<V,E>(ids, pages, nextId, numVertices, numEdges, version);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Vertex<V,E> at(int id) {
+        Object[] page = pages[id >>> PAGE_BITS];
+        return page == null ? null : (Vertex<V,E>) page[id & (PAGE - 1)];
+    }
+
+    /** Puts a vertex in the table, copying the root and the page first if they belong to a published version */
+    private void set(int id, Vertex<V,E> vertex) {
+        int p = id >>> PAGE_BITS;
+        if (!rootOwned || p >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(pages.length, p + 1) * (p >= pages.length ? 2 : 1));
+            rootOwned = true;
+        }
+        if (pages[p] == null) pages[p] = new Object[PAGE];
+        else if (!ownedPages.get(p)) pages[p] = pages[p].clone();
+        ownedPages.set(p);
+        pages[p][id & (PAGE - 1)] = vertex;
+    }
+
+    /** The vertex with the given id, copied first if it belongs to a published version */
+    private Vertex<V,E> writable(int id) {
+        Vertex<V,E> vertex = at(id);
+        if (vertex.version != version) {
+            vertex = new Vertex<V,E>(vertex, version);
+            set(id, vertex);
+        }
+        return vertex;
+    }
+
+    private int id(V v) {
+        Integer id = ids.get(v);
+        if (id == null || at(id) == null) throw new IllegalArgumentException("Not a vertex: " + v);
+        return id;
+    }
+
+    private static int[] append(int[] row, int size, int x) {
+        if (size == row.length) row = Arrays.copyOf(row, Math.max(4, size * 2));
+        row[size] = x;
+        return row;
+    }
+
+    /** Removes one x from the first size entries of the row; returns the new size */
+    private static int delete(int[] row, int size, int x) {
+        for (int k = 0; k < size; k++) {
+            if (row[k] == x) {
+                row[k] = row[size - 1];
+                return size - 1;
+            }
+        }
+        return size;
+    }
+
+    // Reads go to the latest version; to see one version across several calls, use snapshot()
+
+    public int numVertices() {
+        return snapshot().numVertices();
+    }
+
+    public int numEdges() {
+        return snapshot().numEdges();
+    }
+
+    public Iterable<V> vertices() {
+        return snapshot().vertices();
+    }
+
+    public boolean hasVertex(V v) {
+        return snapshot().hasVertex(v);
+    }
+
+    public int outDegree(V v) {
+        return snapshot().outDegree(v);
+    }
+
+    public int inDegree(V v) {
+        return snapshot().inDegree(v);
+    }
+
+    public Iterable<V> outNeighbors(V v) {
+        return snapshot().outNeighbors(v);
+    }
+
+    public Iterable<V> inNeighbors(V v) {
+        return snapshot().inNeighbors(v);
+    }
+
+    public boolean hasEdge(V u, V v) {
+        return snapshot().hasEdge(u, v);
+    }
+
+    public E getLabel(V u, V v) {
+        return snapshot().getLabel(u, v);
+    }
+
+    public int vertexIdBound() {
+        return snapshot().vertexIdBound();
+    }
+
+    public int vertexId(V v) {
+        return snapshot().vertexId(v);
+    }
+
+    public V vertexAt(int id) {
+        return snapshot().vertexAt(id);
+    }
+
+    public int outDegreeOf(int id) {
+        return snapshot().outDegreeOf(id);
+    }
+
+    public int outNeighborAt(int id, int k) {
+        return snapshot().outNeighborAt(id, k);
+    }
+
+    public int inDegreeOf(int id) {
+        return snapshot().inDegreeOf(id);
+    }
+
+    public int inNeighborAt(int id, int k) {
+        return snapshot().inNeighborAt(id, k);
+    }
+
+    public void forEachOutNeighbor(int id, IntConsumer action) {
+        snapshot().forEachOutNeighbor(id, action);
+    }
+
+    public void forEachInNeighbor(int id, IntConsumer action) {
+        snapshot().forEachInNeighbor(id, action);
+    }
+
+    public void insertVertex(V v) {
+        edit(() -> {
+            Integer id = ids.get(v);
+            if (id != null && at(id) != null) return;
+            if (id == null) {
+                id = nextId++;
+                ids.put(v, id);
+            }
+            set(id, new Vertex<V,E>(v, version));
+            numVertices++;
+        });
+    }
+
+    public void insertDirected(V u, V v, E e) {
+        edit(() -> {
+            int a = id(u), b = id(v);
+            Vertex<V,E> from = writable(a), to = writable(b);
+            boolean added = !from.out.containsKey(v);
+            from.out.put(v, e);
+            to.in.put(u, e);
+            if (added) {
+                from.outIds = append(from.outIds, from.outCount++, b);
+                to.inIds = append(to.inIds, to.inCount++, a);
+                numEdges++;
+            }
+        });
+    }
+
+    public void insertUndirected(V u, V v, E e) {
+        // insert in both directions, published together
+        edit(() -> {
+            insertDirected(u, v, e);
+            insertDirected(v, u, e);
+        });
+    }
+
+    public void removeVertex(V v) {
+        edit(() -> {
+            Integer boxed = ids.get(v);
+            if (boxed == null || at(boxed) == null) return;
+            int id = boxed;
+            Vertex<V,E> vertex = at(id);
+            // remove v from the adjacency of its neighbors
+            for (V u : vertex.in.keySet()) { // u has an edge to v
+                if (u.equals(v)) continue;
+                Vertex<V,E> from = writable(ids.get(u));
+                from.out.remove(v);
+                from.outCount = delete(from.outIds, from.outCount, id);
+                numEdges--;
+            }
+            for (V w : vertex.out.keySet()) { // w has an edge from v
+                if (w.equals(v)) continue;
+                Vertex<V,E> to = writable(ids.get(w));
+                to.in.remove(v);
+                to.inCount = delete(to.inIds, to.inCount, id);
+            }
+            numEdges -= vertex.outCount;
+            set(id, null);
+            numVertices--;
+        });
+    }
+
+    public void removeDirected(V u, V v) {
+        edit(() -> {
+            int a = id(u), b = id(v);
+            if (!at(a).out.containsKey(v)) return;
+            Vertex<V,E> from = writable(a), to = writable(b);
+            from.out.remove(v);
+            to.in.remove(u);
+            from.outCount = delete(from.outIds, from.outCount, b);
+            to.inCount = delete(to.inIds, to.inCount, a);
+            numEdges--;
+        });
+    }
+
+    public void removeUndirected(V u, V v) {
+        // remove in both directions, published together
+        edit(() -> {
+            removeDirected(u, v);
+            removeDirected(v, u);
+        });
+    }
+
+    /**
+     * Returns a string representation of the latest version
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stress test for ConcurrentGraph: reader threads run BreadthFirstSearch from random actors directly on
+ * snapshots while one writer keeps adding and removing movies and actors, and each round reports
+ * throughput for rising numbers of readers, with and without the writer
+ * Every snapshot is checked for consistency: the writer only makes undirected edits, so the edge count
+ * must be even and each tree edge must be in the snapshot both ways; every CHECK_EVERY-th search is
+ * also repeated on a CsrGraph built fresh from the snapshot, and every distance must match
+ *
+ * Usage: ConcurrentGraphStress [seconds per round] [max readers] [input directory]
+ */
+public class ConcurrentGraphStress {
+    private static final int CHECK_EVERY = 64;	// searches between comparisons with a fresh build
+
+    /** Counts from one reader */
+    private static class ReaderResult {
+        long searches, visited, errors;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int maxReaders = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 2;
+        String dir = args.length > 2 ? args[2] : "inputs";
+        ConcurrentGraph<String, Set<String>> graph = new ConcurrentGraph<>(BaconGame.mainGraphTest(
+                dir + "/actors.txt", dir + "/movies.txt", dir + "/movie-actors.txt"));
+        List<String> actors = new ArrayList<>();
+        for (String actor : graph.vertices()) actors.add(actor);
+        System.out.println(graph.numVertices() + " actors, " + graph.numEdges() + " directed edges, " + seconds
+                + " s per round");
+        System.out.printf("%8s %8s %12s %14s %10s %10s %8s%n", "readers", "writer", "searches/s", "vertices/s",
+                "edits/s", "versions", "errors");
+
+        for (int readers = 1; readers <= maxReaders; readers *= 2) {
+            for (boolean writing : new boolean[]{false, true}) {
+                ExecutorService threads = Executors.newFixedThreadPool(readers + 1);
+                AtomicBoolean stop = new AtomicBoolean();
+                long firstVersion = graph.snapshot().getVersion();
+                List<Future<ReaderResult>> results = new ArrayList<>();
+                for (int r = 0; r < readers; r++) {
+                    long seed = r;
+                    results.add(threads.submit(() -> read(graph, seed, stop)));
+                }
+                Future<Long> edits = writing ? threads.submit(() -> write(graph, actors, stop)) : null;
+                Thread.sleep(seconds * 1000L);
+                stop.set(true);
+                long searches = 0, visited = 0, errors = 0;
+                for (Future<ReaderResult> result : results) {
+                    searches += result.get().searches;
+                    visited += result.get().visited;
+                    errors += result.get().errors;
+                }
+                long edited = edits == null ? 0 : edits.get();
+                threads.shutdown();
+                System.out.printf("%8d %8s %12.1f %14.0f %10.1f %10d %8d%n", readers, writing ? "yes" : "no",
+                        (double) searches / seconds, (double) visited / seconds, (double) edited / seconds,
+                        graph.snapshot().getVersion() - firstVersion, errors);
+            }
+        }
+    }
+
+    /** Searches from random vertices of the latest snapshot until stopped */
+    private static ReaderResult read(ConcurrentGraph<String, Set<String>> graph, long seed, AtomicBoolean stop) {
+        Random random = new Random(seed);
+        ReaderResult result = new ReaderResult();
+        ConcurrentGraph.Snapshot<String, Set<String>> s = null;
+        BreadthFirstSearch<String, Set<String>> search = null;
+        while (!stop.get()) {
+            ConcurrentGraph.Snapshot<String, Set<String>> latest = graph.snapshot();
+            if (latest != s) {	// a new version: new buffers sized for it
+                s = latest;
+                search = BreadthFirstSearch.forGraph(s);
+                if (s.numEdges() % 2 != 0) result.errors++;
+            }
+            int source = random.nextInt(s.vertexIdBound());
+            if (s.vertexAt(source) == null) continue;	// a removed vertex
+            ShortestPathTree<String, Set<String>> tree = search.run(source);
+            for (String v : tree.vertices()) {
+                String parent = tree.parent(v);
+                if (parent != null && (!s.hasEdge(parent, v) || !s.hasEdge(v, parent))) result.errors++;
+            }
+            if ((result.searches + 1) % CHECK_EVERY == 0 && !matchesFreshBuild(s, tree)) result.errors++;
+            result.searches++;
+            result.visited += tree.numVertices();
+        }
+        return result;
+    }
+
+    /** Whether a search on a CsrGraph copied from the snapshot finds the same distances as the tree */
+    private static boolean matchesFreshBuild(ConcurrentGraph.Snapshot<String, Set<String>> s,
+                                             ShortestPathTree<String, Set<String>> tree) {
+        ShortestPathTree<String, Set<String>> fresh = new BreadthFirstSearch<>(new CsrGraph<>(s)).run(tree.getSource());
+        if (fresh.numVertices() != tree.numVertices()) return false;
+        for (String v : tree.vertices()) {
+            if (fresh.distance(v) != tree.distance(v)) return false;
+        }
+        return true;
+    }
+
+    /** Adds and removes movies, and actors that only the writer knows, until stopped; returns the edits made */
+    private static long write(ConcurrentGraph<String, Set<String>> graph, List<String> actors, AtomicBoolean stop) {
+        Random random = new Random(-1);
+        List<String> added = new ArrayList<>();
+        long edits = 0;
+        for (int movie = 0; !stop.get(); movie++) {
+            int op = random.nextInt(10);
+            if (op < 5) {
+                // a new movie with a few existing actors: one version for the whole cast
+                String title = "Stress Movie " + movie;
+                List<String> cast = new ArrayList<>();
+                for (int i = 2 + random.nextInt(5); i > 0; i--) cast.add(actors.get(random.nextInt(actors.size())));
+                graph.update(g -> {
+                    for (int i = 0; i < cast.size(); i++) {
+                        for (int j = i + 1; j < cast.size(); j++) {
+                            String u = cast.get(i), v = cast.get(j);
+                            if (u.equals(v)) continue;
+                            Set<String> label = g.hasEdge(u, v) ? new HashSet<>(g.getLabel(u, v)) : new HashSet<>();
+                            label.add(title);	// a new set, since the old one may be in use by readers
+                            g.insertUndirected(u, v, label);
+                        }
+                    }
+                });
+            } else if (op < 9) {
+                // two co-stars stop being co-stars
+                String u = actors.get(random.nextInt(actors.size()));
+                Iterator<String> costars = graph.outNeighbors(u).iterator();
+                if (costars.hasNext()) graph.removeUndirected(u, costars.next());
+            } else if (added.isEmpty() || random.nextBoolean()) {
+                // a new actor in one movie with a few others
+                String actor = "Stress Actor " + movie, title = "Stress Movie " + movie;
+                added.add(actor);
+                graph.update(g -> {
+                    g.insertVertex(actor);
+                    for (int i = 0; i < 3; i++) {
+                        g.insertUndirected(actor, actors.get(random.nextInt(actors.size())),
+                                Collections.singleton(title));
+                    }
+                });
+            } else {
+                graph.removeVertex(added.remove(random.nextInt(added.size())));
+            }
+            edits++;
+        }
+        return edits;
+    }
+}
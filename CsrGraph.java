@@ -0,0 +1,318 @@
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only compressed sparse row (CSR) implementation of the Graph interface
+ * Vertices are interned to int ids 0..n-1; the out-neighbors of vertex i are
+ * targets[offsets[i]] .. targets[offsets[i+1]-1], sorted by id, with edge labels in a parallel array
+ * A graph whose edges all come in pairs with the same label is undirected, and its in and out
+ * adjacency share one set of arrays
+ */
+public class CsrGraph<V,E> implements IndexedGraph<V,E> {
+    protected final Map<V, Integer> ids;		// vertex -> id
+    protected final Object[] vertices;		// id -> vertex
+    protected final int[] outOffsets;		// row start of each vertex's out edges, plus an end marker
+    protected final int[] outTargets;		// out-neighbor ids, row by row
+    protected final Object[] outLabels;		// label of each out edge, parallel to outTargets
+    protected final int[] inOffsets;		// same layout for in edges; the out arrays when undirected
+    protected final int[] inTargets;
+    protected final Object[] inLabels;
+
+    /**
+     * Copies an existing graph, interning its vertices in iteration order
+     *
+     * @param g graph to copy
+     */
+    public CsrGraph(Graph<V,E> g) {
+        this(internAll(g.vertices()), g);
+    }
+
+    private CsrGraph(List<V> order, Graph<V,E> g) {
+        ids = index(order);
+        vertices = order.toArray();
+        int m = g.numEdges();
+        int[] from = new int[m], to = new int[m];
+        Object[] labels = new Object[m];
+        int e = 0;
+        boolean undirected = true;
+        for (int u = 0; u < vertices.length; u++) {
+            V uv = vertexAt(u);
+            for (V w : g.outNeighbors(uv)) {
+                E label = g.getLabel(uv, w);
+                from[e] = u;
+                to[e] = ids.get(w);
+                labels[e] = label;
+                e++;
+                // undirected only if every edge is mirrored with the same label
+                if (undirected && (!g.hasEdge(w, uv) || !Objects.equals(g.getLabel(w, uv), label))) undirected = false;
+            }
+        }
+        outOffsets = new int[vertices.length + 1];
+        outTargets = new int[e];
+        outLabels = new Object[e];
+        fillRows(from, to, labels, e, outOffsets, outTargets, outLabels);
+        if (undirected) {
+            inOffsets = outOffsets;
+            inTargets = outTargets;
+            inLabels = outLabels;
+        } else {
+            inOffsets = new int[vertices.length + 1];
+            inTargets = new int[e];
+            inLabels = new Object[e];
+            fillRows(to, from, labels, e, inOffsets, inTargets, inLabels);
+        }
+    }
+
+    /**
+     * Builds a graph from an edge list over vertex ids (indices into the vertex list)
+     *
+     * @param order vertices, by id
+     * @param from source id of each edge
+     * @param to target id of each edge
+     * @param labels label of each edge
+     * @param undirected whether each listed edge stands for the pair of edges between its endpoints
+     */
+    public CsrGraph(List<V> order, int[] from, int[] to, List<E> labels, boolean undirected) {
+        ids = index(order);
+        vertices = order.toArray();
+        int m = labels.size();
+        Object[] edgeLabels = labels.toArray();
+        if (undirected) {
+            // list each edge in both directions (self-loops once), then the in adjacency is the out adjacency
+            int[] bothFrom = Arrays.copyOf(from, 2 * m), bothTo = Arrays.copyOf(to, 2 * m);
+            Object[] bothLabels = Arrays.copyOf(edgeLabels, 2 * m);
+            int total = m;
+            for (int e = 0; e < m; e++) {
+                if (from[e] == to[e]) continue;
+                bothFrom[total] = to[e];
+                bothTo[total] = from[e];
+                bothLabels[total++] = edgeLabels[e];
+            }
+            outOffsets = new int[vertices.length + 1];
+            outTargets = new int[total];
+            outLabels = new Object[total];
+            fillRows(bothFrom, bothTo, bothLabels, total, outOffsets, outTargets, outLabels);
+            inOffsets = outOffsets;
+            inTargets = outTargets;
+            inLabels = outLabels;
+        } else {
+            outOffsets = new int[vertices.length + 1];
+            outTargets = new int[m];
+            outLabels = new Object[m];
+            fillRows(from, to, edgeLabels, m, outOffsets, outTargets, outLabels);
+            inOffsets = new int[vertices.length + 1];
+            inTargets = new int[m];
+            inLabels = new Object[m];
+            fillRows(to, from, edgeLabels, m, inOffsets, inTargets, inLabels);
+        }
+    }
+
+    private static <V> List<V> internAll(Iterable<V> vs) {
+        List<V> order = new ArrayList<V>();
+        for (V v : vs) order.add(v);
+        return order;
+    }
+
+    private static <V> Map<V, Integer> index(List<V> order) {
+        Map<V, Integer> ids = new HashMap<V, Integer>(order.size() * 4 / 3 + 1);
+        for (int i = 0; i < order.size(); i++) ids.put(order.get(i), i);
+        return ids;
+    }
+
+    /**
+     * Counting sort of the edges by source into rows, then sorts each row by target id
+     */
+    private static void fillRows(int[] from, int[] to, Object[] labels, int m,
+                                 int[] offsets, int[] targets, Object[] rowLabels) {
+        int n = offsets.length - 1;
+        for (int e = 0; e < m; e++) offsets[from[e] + 1]++;
+        for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < m; e++) {
+            int slot = next[from[e]]++;
+            targets[slot] = to[e];
+            rowLabels[slot] = labels[e];
+        }
+        long[] keys = new long[0];
+        Object[] tmp = new Object[0];
+        for (int i = 0; i < n; i++) {
+            int start = offsets[i], len = offsets[i + 1] - start;
+            if (len < 2) continue;
+            if (keys.length < len) {
+                keys = new long[len];
+                tmp = new Object[len];
+            }
+            // sort (target, position) pairs so labels can follow their targets
+            for (int k = 0; k < len; k++) keys[k] = ((long) targets[start + k] << 32) | k;
+            Arrays.sort(keys, 0, len);
+            System.arraycopy(rowLabels, start, tmp, 0, len);
+            for (int k = 0; k < len; k++) {
+                targets[start + k] = (int) (keys[k] >>> 32);
+                rowLabels[start + k] = tmp[(int) keys[k]];
+            }
+        }
+    }
+
+    public int vertexIdBound() {
+        return vertices.length;
+    }
+
+    public int vertexId(V v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V vertexAt(int id) {
+        return (V) vertices[id];
+    }
+
+    public int outDegreeOf(int id) {
+        return outOffsets[id + 1] - outOffsets[id];
+    }
+
+    public int outNeighborAt(int id, int k) {
+        return outTargets[outOffsets[id] + k];
+    }
+
+    public int inDegreeOf(int id) {
+        return inOffsets[id + 1] - inOffsets[id];
+    }
+
+    public int inNeighborAt(int id, int k) {
+        return inTargets[inOffsets[id] + k];
+    }
+
+    public void forEachOutNeighbor(int id, IntConsumer action) {
+        for (int i = outOffsets[id]; i < outOffsets[id + 1]; i++) action.accept(outTargets[i]);
+    }
+
+    public void forEachInNeighbor(int id, IntConsumer action) {
+        for (int i = inOffsets[id]; i < inOffsets[id + 1]; i++) action.accept(inTargets[i]);
+    }
+
+    /** The label on the k-th out edge of the vertex with the given id */
+    @SuppressWarnings("unchecked")
+    public E outLabelAt(int id, int k) {
+        return (E) outLabels[outOffsets[id] + k];
+    }
+
+    /** Whether the in adjacency is shared with the out adjacency */
+    public boolean isUndirected() {
+        return inTargets == outTargets;
+    }
+
+    private int id(V v) {
+        Integer id = ids.get(v);
+        if (id == null) throw new IllegalArgumentException("Not a vertex: " + v);
+        return id;
+    }
+
+    /** Position of target t in the sorted row of u, or -1 */
+    private int slot(int u, int t) {
+        int slot = Arrays.binarySearch(outTargets, outOffsets[u], outOffsets[u + 1], t);
+        return slot < 0 ? -1 : slot;
+    }
+
+    /** The vertices named by a slice of a target array */
+    private Iterable<V> row(int[] targets, int start, int end) {
+        return new AbstractList<V>() {
+            public V get(int i) {
+                return vertexAt(targets[start + i]);
+            }
+
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+
+    public int numVertices() {
+        return vertices.length;
+    }
+
+    public int numEdges() {
+        return outTargets.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Iterable<V> vertices() {
+        return Collections.unmodifiableList(Arrays.asList((V[]) vertices));
+    }
+
+    public boolean hasVertex(V v) {
+        return ids.containsKey(v);
+    }
+
+    public int outDegree(V v) {
+        return outDegreeOf(id(v));
+    }
+
+    public int inDegree(V v) {
+        return inDegreeOf(id(v));
+    }
+
+    public Iterable<V> outNeighbors(V v) {
+        int i = id(v);
+        return row(outTargets, outOffsets[i], outOffsets[i + 1]);
+    }
+
+    public Iterable<V> inNeighbors(V v) {
+        int i = id(v);
+        return row(inTargets, inOffsets[i], inOffsets[i + 1]);
+    }
+
+    public boolean hasEdge(V u, V v) {
+        int i = vertexId(u), j = vertexId(v);
+        return i >= 0 && j >= 0 && slot(i, j) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E getLabel(V u, V v) {
+        int i = vertexId(u), j = vertexId(v);
+        if (i < 0 || j < 0) return null;
+        int slot = slot(i, j);
+        return slot < 0 ? null : (E) outLabels[slot];
+    }
+
+    public void insertVertex(V v) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    public void insertDirected(V u, V v, E e) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    public void insertUndirected(V u, V v, E e) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    public void removeVertex(V v) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    public void removeDirected(V u, V v) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    public void removeUndirected(V u, V v) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    /**
+     * Returns a string representation of the vertex and edge lists.
+     */
+    public String toString() {
+        StringBuilder edges = new StringBuilder("{");
+        for (int u = 0; u < vertices.length; u++) {
+            if (u > 0) edges.append(", ");
+            edges.append(vertices[u]).append("={");
+            for (int k = 0; k < outDegreeOf(u); k++) {
+                if (k > 0) edges.append(", ");
+                edges.append(vertices[outNeighborAt(u, k)]).append('=').append(outLabelAt(u, k));
+            }
+            edges.append('}');
+        }
+        return "Vertices: " + Arrays.toString(vertices) + "\nOut edges: " + edges.append('}');
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.*;
+
+/**
+ * Vertices of a co-star graph ordered by two measures, computed in one pass over the edges: the
+ * number of co-stars, and the number of distinct movies shared with them
+ * Each measure keeps the vertex ids in a counting sort by value, with the start of every value's run,
+ * so a range of values is a contiguous slice found in O(1) and the top k are the last k entries
+ *
+ * @param <V>	the type of vertices
+ */
+public class DegreeIndex<V> {
+    private final IndexedGraph<V, ? extends Collection<?>> graph;
+    private final Ranking costars, movies;
+
+    /** Vertex ids sorted by one measure */
+    private static class Ranking {
+        final int[] value;		// the measure of each vertex id, -1 for an id with no vertex
+        final int[] order;		// vertex ids by increasing value, ties by id
+        final int[] starts;	// vertices with value d are order[starts[d]..starts[d+1])
+
+        Ranking(int[] value) {
+            this.value = value;
+            int max = 0;
+            for (int d : value) max = Math.max(max, d);
+            starts = new int[max + 2];
+            for (int d : value) if (d >= 0) starts[d + 1]++;
+            for (int d = 0; d <= max; d++) starts[d + 1] += starts[d];
+            order = new int[starts[max + 1]];
+            int[] next = Arrays.copyOf(starts, max + 1);
+            for (int v = 0; v < value.length; v++) if (value[v] >= 0) order[next[value[v]]++] = v;
+        }
+
+        /** Index in order of the first vertex with a value of at least d */
+        int from(int d) {
+            return starts[Math.max(0, Math.min(d, starts.length - 1))];
+        }
+    }
+
+    /**
+     * Measures every vertex
+     *
+     * @param graph undirected graph labeled by sets of movies, whose vertex ids must not change
+     */
+    public DegreeIndex(IndexedGraph<V, ? extends Collection<?>> graph) {
+        this.graph = graph;
+        int n = graph.vertexIdBound();
+        int[] costarCount = new int[n], movieCount = new int[n];
+        Set<Object> shared = new HashSet<>();
+        for (int u = 0; u < n; u++) {
+            V uv = graph.vertexAt(u);
+            if (uv == null) {	// the id of a removed vertex, in a ConcurrentGraph snapshot
+                costarCount[u] = movieCount[u] = -1;
+                continue;
+            }
+            int degree = graph.outDegreeOf(u);
+            shared.clear();
+            for (int k = 0; k < degree; k++) {
+                int w = graph.outNeighborAt(u, k);
+                if (w == u) continue;	// a self-loop is not a co-star
+                costarCount[u]++;
+                Collection<?> label = graph.getLabel(uv, graph.vertexAt(w));
+                if (label != null) shared.addAll(label);
+            }
+            movieCount[u] = shared.size();
+        }
+        costars = new Ranking(costarCount);
+        movies = new Ranking(movieCount);
+    }
+
+    private int id(V v) {
+        int id = graph.vertexId(v);
+        if (id < 0) throw new IllegalArgumentException("Not a vertex: " + v);
+        return id;
+    }
+
+    /** Number of distinct co-stars */
+    public int costars(V v) {
+        return costars.value[id(v)];
+    }
+
+    /** Number of distinct movies shared with a co-star; movies nobody else is in are not counted */
+    public int movies(V v) {
+        return movies.value[id(v)];
+    }
+
+    /**
+     * Vertices with a co-star count between low and high, inclusive, in increasing order of it
+     *
+     * @param byMovies whether to use the distinct-movie count instead
+     */
+    public List<V> range(int low, int high, boolean byMovies) {
+        Ranking ranking = byMovies ? movies : costars;
+        int start = ranking.from(low);
+        int end = high < low ? start : ranking.from((int) Math.min(Integer.MAX_VALUE, high + 1L));
+        return view(ranking.order, start, end);
+    }
+
+    /**
+     * The k vertices with the most co-stars, in increasing order of it, so the most connected is last
+     *
+     * @param byMovies whether to use the distinct-movie count instead
+     */
+    public List<V> top(int k, boolean byMovies) {
+        int[] order = (byMovies ? movies : costars).order;
+        return view(order, Math.max(0, order.length - Math.max(0, k)), order.length);
+    }
+
+    /** The vertices with the ids in order[start..end) */
+    private List<V> view(int[] order, int start, int end) {
+        return new AbstractList<V>() {
+            public V get(int i) {
+                return graph.vertexAt(order[start + i]);
+            }
+
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+}
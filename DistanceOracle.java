@@ -0,0 +1,293 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Exact distance oracle by pruned landmark labeling (Akiba, Iwata & Yoshida): every vertex gets a
+ * label of (hub, distance) pairs such that any shortest path between two vertices passes through a
+ * hub both labels share, so a distance is the best sum over their common hubs, a merge of two short
+ * sorted arrays
+ * Labels come from one BFS per vertex, highest degree first, each BFS pruned wherever the labels
+ * built so far already give the distance; in small-world graphs labels stay small
+ * Paths are rebuilt on demand by stepping to a neighbor one closer to the target
+ * An oracle can be saved and loaded again for a graph with the same vertex names and edges; the file
+ * keeps a stamp of the edges, so labels for a graph that has since changed are not loaded
+ *
+ * @param <V>	the type of vertices
+ * @param <E>	the type of edge labels
+ */
+public class DistanceOracle<V,E> {
+    private static final int MAGIC = 0x4B42444F;	// "KBDO"
+    private static final int VERSION = 2;
+
+    private final IndexedGraph<V, E> graph;
+    private final int[] offsets;	// label of vertex v is hubs/dists[offsets[v]..offsets[v+1])
+    private final int[] hubs;		// hub ranks, ascending within each label
+    private final short[] dists;	// distance from the vertex to each hub
+    private final long buildNanos;	// time taken to build the labels, 0 when loaded
+
+    private DistanceOracle(IndexedGraph<V, E> graph, int[] offsets, int[] hubs, short[] dists, long buildNanos) {
+        this.graph = graph;
+        this.offsets = offsets;
+        this.hubs = hubs;
+        this.dists = dists;
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * Builds the labels for an undirected graph
+     *
+     * @param graph graph to index, whose vertex ids must not change while the oracle is in use
+     * @return the oracle
+     */
+    public static <V, E> DistanceOracle<V, E> build(IndexedGraph<V, E> graph) {
+        long start = System.nanoTime();
+        int n = graph.vertexIdBound();
+        // rank vertices by degree, highest first
+        Integer[] byDegree = new Integer[n];
+        for (int v = 0; v < n; v++) byDegree[v] = v;
+        Arrays.sort(byDegree, (a, b) -> Integer.compare(graph.outDegreeOf(b), graph.outDegreeOf(a)));
+
+        int[][] labelHubs = new int[n][];
+        short[][] labelDists = new short[n][];
+        int[] sizes = new int[n];
+        for (int v = 0; v < n; v++) {
+            labelHubs[v] = new int[4];
+            labelDists[v] = new short[4];
+        }
+        int[] rootDist = new int[n];	// distance from the current root to each hub in its label, else MAX
+        int[] dist = new int[n];
+        int[] queue = new int[n];
+        Arrays.fill(rootDist, Integer.MAX_VALUE);
+        Arrays.fill(dist, -1);
+        for (int rank = 0; rank < n; rank++) {
+            int root = byDegree[rank];
+            for (int i = 0; i < sizes[root]; i++) rootDist[labelHubs[root][i]] = labelDists[root][i];
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            dist[root] = 0;
+            while (head < tail) {
+                int u = queue[head++];
+                int d = dist[u];
+                // prune: the labels so far already give a path this short
+                boolean covered = false;
+                for (int i = 0; i < sizes[u] && !covered; i++) {
+                    int via = rootDist[labelHubs[u][i]];
+                    if (via != Integer.MAX_VALUE && via + labelDists[u][i] <= d) covered = true;
+                }
+                if (covered) continue;
+                if (d > Short.MAX_VALUE) throw new IllegalStateException("Distance too long for the oracle: " + d);
+                if (sizes[u] == labelHubs[u].length) {
+                    labelHubs[u] = Arrays.copyOf(labelHubs[u], sizes[u] * 2);
+                    labelDists[u] = Arrays.copyOf(labelDists[u], sizes[u] * 2);
+                }
+                labelHubs[u][sizes[u]] = rank;
+                labelDists[u][sizes[u]++] = (short) d;
+                int degree = graph.outDegreeOf(u);
+                for (int k = 0; k < degree; k++) {
+                    int w = graph.outNeighborAt(u, k);
+                    if (dist[w] < 0) {
+                        dist[w] = d + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            for (int i = 0; i < tail; i++) dist[queue[i]] = -1;
+            for (int i = 0; i < sizes[root]; i++) rootDist[labelHubs[root][i]] = Integer.MAX_VALUE;
+        }
+
+        // pack the labels into flat arrays
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) offsets[v + 1] = offsets[v] + sizes[v];
+        int[] hubs = new int[offsets[n]];
+        short[] dists = new short[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(labelHubs[v], 0, hubs, offsets[v], sizes[v]);
+            System.arraycopy(labelDists[v], 0, dists, offsets[v], sizes[v]);
+        }
+        return new DistanceOracle<V, E>(graph, offsets, hubs, dists, System.nanoTime() - start);
+    }
+
+    /** Distance between the vertices with the given ids, or -1 if they are not connected */
+    public int distance(int s, int t) {
+        int i = offsets[s], iEnd = offsets[s + 1], j = offsets[t], jEnd = offsets[t + 1];
+        int best = Integer.MAX_VALUE;
+        while (i < iEnd && j < jEnd) {
+            if (hubs[i] < hubs[j]) i++;
+            else if (hubs[i] > hubs[j]) j++;
+            else best = Math.min(best, dists[i++] + dists[j++]);
+        }
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    /**
+     * Number of edges on a shortest path between two vertices
+     *
+     * @return the distance, or -1 if there is no path
+     */
+    public int distance(V from, V to) {
+        return distance(id(from), id(to));
+    }
+
+    /**
+     * Rebuilds a shortest path by repeatedly stepping to a neighbor one closer to the end
+     *
+     * @return the path with its edge labels, or null if there is none
+     */
+    public ShortestPath<V, E> path(V from, V to) {
+        int s = id(from), t = id(to);
+        int d = distance(s, t);
+        if (d < 0) return null;
+        List<V> vertices = new ArrayList<V>();
+        List<E> labels = new ArrayList<E>();
+        vertices.add(from);
+        for (int u = s; d > 0; d--) {
+            int next = -1;
+            for (int k = 0; k < graph.outDegreeOf(u) && next < 0; k++) {
+                int w = graph.outNeighborAt(u, k);
+                if (distance(w, t) == d - 1) next = w;
+            }
+            if (next < 0) {	// only if the labels do not match the graph
+                throw new IllegalStateException("No neighbor of " + graph.vertexAt(u) + " is " + (d - 1)
+                        + " from " + to + "; the oracle is out of date");
+            }
+            labels.add(graph.getLabel(graph.vertexAt(u), graph.vertexAt(next)));
+            vertices.add(graph.vertexAt(next));
+            u = next;
+        }
+        return new ShortestPath<V, E>(vertices, labels);
+    }
+
+    private int id(V v) {
+        int id = graph.vertexId(v);
+        if (id < 0) throw new IllegalArgumentException("Not a vertex: " + v);
+        return id;
+    }
+
+    /**
+     * Stamps a graph by its edges, keyed by vertex name (toString) like a saved oracle, so the stamp
+     * does not depend on vertex ids or iteration order
+     *
+     * @param graph graph an oracle is built for
+     * @return sum of a hash of each directed edge, mixed with the vertex count
+     */
+    public static <V, E> long stamp(IndexedGraph<V, E> graph) {
+        int n = graph.vertexIdBound();
+        long[] names = new long[n];
+        for (int v = 0; v < n; v++) names[v] = String.valueOf(graph.vertexAt(v)).hashCode();
+        long stamp = mix(n);
+        for (int u = 0; u < n; u++) {
+            int degree = graph.outDegreeOf(u);
+            for (int k = 0; k < degree; k++) {
+                stamp += mix(names[u] << 32 ^ names[graph.outNeighborAt(u, k)] & 0xFFFFFFFFL);
+            }
+        }
+        return stamp;
+    }
+
+    /** Spreads the bits of x, the finalizer of MurmurHash3 */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+        x = (x ^ (x >>> 33)) * 0xC4CEB93FE1A85EC3L;
+        return x ^ (x >>> 33);
+    }
+
+    /**
+     * Checks whether a saved oracle is in the current format and was built for a graph with these edges,
+     * reading only its header
+     *
+     * @param graph graph to use the oracle on
+     * @param file file written by save
+     * @return true if the file can be loaded for the graph, false if the oracle should be rebuilt
+     */
+    public static <V, E> boolean isCurrent(IndexedGraph<V, E> graph, File file) throws IOException {
+        if (file.length() < 20) return false;	// missing, or too short for a header
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION && in.readInt() == graph.vertexIdBound()
+                    && in.readLong() == stamp(graph);
+        }
+    }
+
+    /** How many (hub, distance) entries all the labels hold */
+    public long labelEntries() {
+        return hubs.length;
+    }
+
+    /** Approximate heap taken by the label arrays, in bytes */
+    public long indexBytes() {
+        return 4L * offsets.length + 4L * hubs.length + 2L * dists.length;
+    }
+
+    /** Build time, label sizes and memory, for deciding whether the oracle is worth it */
+    public String report() {
+        int n = offsets.length - 1;
+        return String.format("distance oracle: %d vertices, %d label entries (%.1f per vertex), %.1f MB, built in %s",
+                n, hubs.length, n == 0 ? 0.0 : (double) hubs.length / n, indexBytes() / 1e6,
+                buildNanos == 0 ? "(loaded)" : String.format("%.1f ms", buildNanos / 1e6));
+    }
+
+    /**
+     * Saves the labels, keyed by vertex name (toString) so they can be loaded against another copy of the graph
+     *
+     * @param file file to write
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            int n = offsets.length - 1;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeLong(stamp(graph));
+            for (int v = 0; v < n; v++) {
+                out.writeUTF(String.valueOf(graph.vertexAt(v)));
+                out.writeInt(offsets[v + 1] - offsets[v]);
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    out.writeInt(hubs[i]);
+                    out.writeShort(dists[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads saved labels for a graph with the same vertex names and edges
+     *
+     * @param graph graph the labels were built for, or a copy of it with its own ids
+     * @param file file written by save
+     * @return the oracle
+     */
+    public static <V, E> DistanceOracle<V, E> load(IndexedGraph<V, E> graph, File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a distance oracle: " + file);
+            int n = in.readInt();
+            if (n != graph.vertexIdBound()) throw new IOException("Oracle is for a graph with " + n + " vertices");
+            if (in.readLong() != stamp(graph)) throw new IOException("Oracle is for a graph with other edges: " + file);
+            Map<String, Integer> ids = new HashMap<>();
+            for (int v = 0; v < n; v++) ids.put(String.valueOf(graph.vertexAt(v)), v);
+            int[][] labelHubs = new int[n][];
+            short[][] labelDists = new short[n][];
+            int total = 0;
+            for (int i = 0; i < n; i++) {
+                String name = in.readUTF();
+                Integer v = ids.get(name);
+                if (v == null) throw new IOException("Oracle vertex not in the graph: " + name);
+                int size = in.readInt();
+                labelHubs[v] = new int[size];
+                labelDists[v] = new short[size];
+                for (int k = 0; k < size; k++) {
+                    labelHubs[v][k] = in.readInt();
+                    labelDists[v][k] = in.readShort();
+                }
+                total += size;
+            }
+            int[] offsets = new int[n + 1];
+            int[] hubs = new int[total];
+            short[] dists = new short[total];
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] = offsets[v] + labelHubs[v].length;
+                System.arraycopy(labelHubs[v], 0, hubs, offsets[v], labelHubs[v].length);
+                System.arraycopy(labelDists[v], 0, dists, offsets[v], labelDists[v].length);
+            }
+            return new DistanceOracle<V, E>(graph, offsets, hubs, dists, 0);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.Set;
+
+/**
+ * State shared by the commands of one game: the graph, loaded once, and the BFS tree for the current
+ * center of the universe, which is only recomputed when the center changes
+ */
+public class GameSession {
+    private final Graph<String, Set<String>> graph;	// the full co-star graph
+    private final IndexedGraph<String, Set<String>> indexed;	// the same graph with int ids, copied once
+    private final BreadthFirstSearch<String, Set<String>> search;	// BFS buffers, reused for every center
+    private final BidirectionalSearch<String, Set<String>> pathSearch;	// for single path queries
+    private final ComponentIndex<String> components;		// who can reach whom, built once
+    private final DegreeIndex<String> degrees;			// actors by degree, built once
+    private String center;					// current center of the universe
+    private ShortestPathTree<String, Set<String>> tree;	// BFS tree from the center
+
+    /**
+     * Creates a session over an already loaded graph
+     *
+     * @param graph co-star graph
+     * @param center initial center of the universe
+     */
+    public GameSession(Graph<String, Set<String>> graph, String center) {
+        this.graph = graph;
+        indexed = BaconGame.indexed(graph);
+        search = BreadthFirstSearch.forGraph(indexed);
+        pathSearch = new BidirectionalSearch<>(indexed);
+        components = new ComponentIndex<>(indexed);
+        degrees = new DegreeIndex<>(indexed);
+        setCenter(center);
+    }
+
+    public Graph<String, Set<String>> getGraph() {
+        return graph;
+    }
+
+    /** The graph with int ids, for queries that run their own searches */
+    public IndexedGraph<String, Set<String>> getIndexedGraph() {
+        return indexed;
+    }
+
+    public String getCenter() {
+        return center;
+    }
+
+    public ShortestPathTree<String, Set<String>> getTree() {
+        return tree;
+    }
+
+    public ComponentIndex<String> getComponents() {
+        return components;
+    }
+
+    public DegreeIndex<String> getDegrees() {
+        return degrees;
+    }
+
+    /** How many actors have a path to the center, not counting the center */
+    public int numConnected() {
+        return components.componentSize(center) - 1;
+    }
+
+    /** Average separation from the center, from the distance histogram the BFS recorded */
+    public double getAverageSeparation() {
+        return tree.averageSeparation();
+    }
+
+    /**
+     * Finds a shortest path from the center to an actor, searching from both ends
+     *
+     * @param actor an actor in the graph
+     * @return path from the center to the actor with the movies linking them, or null if there is none
+     */
+    public ShortestPath<String, Set<String>> findPath(String actor) {
+        long start = Metrics.start();
+        ShortestPath<String, Set<String>> path = pathSearch.find(center, actor);
+        Metrics.stage("findPath", start, path == null ? 0 : path.length());
+        return path;
+    }
+
+    /**
+     * Makes a new center of the universe and recomputes its BFS tree
+     *
+     * @param center an actor in the graph
+     */
+    public void setCenter(String center) {
+        if (!graph.hasVertex(center)) {
+            throw new IllegalArgumentException("Can't do that one");
+        }
+        long start = Metrics.start();
+        this.center = center;
+        tree = search.run(center);
+        Metrics.stage("setCenter", start, tree.numVertices());
+    }
+}
@@ -1,7 +1,17 @@
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
 /**
         * Simple interface for graphs, simplified from Goodrich & Tamassia
         * Centered on directed edges, with undirected edges treated as pairs of directed edges
         *
+        * Vertices can also be addressed by int ids in [0, vertexIdBound()), so a traversal can keep its state
+        * in arrays and walk neighbors by index without allocating an iterator per step. The default id
+        * methods adapt the object methods by scanning the vertices in iteration order, so each lookup
+        * takes linear time and ids are only stable while the graph is unchanged; implementations that
+        * keep ids natively override them, and BaconGame.withIds copies a graph that does not before
+        * traversing it
+        *
         * @param <V>	the type of vertices
         * @param <E>	the type of edge labels
 
@@ -55,4 +65,66 @@ public interface Graph<V,E> {
 
     /** Removes the pair of edges between u and v */
     public void removeUndirected(V u, V v);
+
+    /** Every vertex id is in [0, vertexIdBound()) */
+    public default int vertexIdBound() {
+        return numVertices();
+    }
+
+    /** The id of v, or -1 if v is not a vertex */
+    public default int vertexId(V v) {
+        int id = 0;
+        for (V u : vertices()) {
+            if (Objects.equals(u, v)) return id;
+            id++;
+        }
+        return -1;
+    }
+
+    /** The vertex with the given id */
+    public default V vertexAt(int id) {
+        int i = 0;
+        for (V u : vertices()) {
+            if (i++ == id) return u;
+        }
+        throw new IndexOutOfBoundsException("No vertex with id " + id);
+    }
+
+    /** How many edges from the vertex with the given id */
+    public default int outDegreeOf(int id) {
+        return outDegree(vertexAt(id));
+    }
+
+    /** The id of the k-th out-neighbor of the vertex with the given id, 0 <= k < outDegreeOf(id) */
+    public default int outNeighborAt(int id, int k) {
+        int i = 0;
+        for (V w : outNeighbors(vertexAt(id))) {
+            if (i++ == k) return vertexId(w);
+        }
+        throw new IndexOutOfBoundsException("Out-neighbor " + k + " of vertex " + id);
+    }
+
+    /** How many edges to the vertex with the given id */
+    public default int inDegreeOf(int id) {
+        return inDegree(vertexAt(id));
+    }
+
+    /** The id of the k-th in-neighbor of the vertex with the given id, 0 <= k < inDegreeOf(id) */
+    public default int inNeighborAt(int id, int k) {
+        int i = 0;
+        for (V w : inNeighbors(vertexAt(id))) {
+            if (i++ == k) return vertexId(w);
+        }
+        throw new IndexOutOfBoundsException("In-neighbor " + k + " of vertex " + id);
+    }
+
+    /** Passes the id of each out-neighbor of the vertex with the given id to the action */
+    public default void forEachOutNeighbor(int id, IntConsumer action) {
+        for (V w : outNeighbors(vertexAt(id))) action.accept(vertexId(w));
+    }
+
+    /** Passes the id of each in-neighbor of the vertex with the given id to the action */
+    public default void forEachInNeighbor(int id, IntConsumer action) {
+        for (V w : inNeighbors(vertexAt(id))) action.accept(vertexId(w));
+    }
 }
@@ -0,0 +1,186 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Micro-benchmarks for the graph code, on the input files or on a synthetic scale-free graph:
+ * construction, single-source BFS, path reconstruction, all-sources closeness, and the basic Graph
+ * operations, with every Graph implementation side by side
+ * Each benchmark gets warm-up iterations, so the JIT has compiled it, then timed iterations; the mean
+ * and standard deviation per operation are reported. Results go into a sink that is printed at the
+ * end, so the JIT cannot drop the work. For forked runs with JMH's warm-up and dead-code
+ * protection, use the JMH module in jmh/
+ *
+ * Usage: GraphBenchmarks [synthetic actor count | input directory] [filter]
+ */
+public class GraphBenchmarks {
+    private static final int WARMUP = 3;		// untimed iterations per benchmark
+    private static final int ITERATIONS = 5;	// timed iterations per benchmark
+    private static final int QUERIES = 1000;	// basic operations per iteration
+
+    private static long sink;		// consumes benchmark results
+    private static String filter;	// only run benchmarks whose names contain this
+
+    /**
+     * Times a benchmark and prints its line
+     *
+     * @param name benchmark name
+     * @param ops operations per call, to report time per operation
+     * @param body one iteration of the benchmark
+     */
+    private static void bench(String name, int ops, Supplier<Object> body) {
+        if (filter != null && !name.contains(filter)) return;
+        for (int i = 0; i < WARMUP; i++) consume(body.get());
+        double[] nanos = new double[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            consume(body.get());
+            nanos[i] = (double) (System.nanoTime() - start) / ops;
+        }
+        double mean = 0, variance = 0;
+        for (double t : nanos) mean += t / ITERATIONS;
+        for (double t : nanos) variance += (t - mean) * (t - mean) / ITERATIONS;
+        System.out.printf("%-45s %14.1f +- %-12.1f ns/op%n", name, mean, Math.sqrt(variance));
+    }
+
+    private static void consume(Object result) {
+        sink += System.identityHashCode(result);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String source = args.length > 0 ? args[0] : "inputs";
+        filter = args.length > 1 ? args[1] : null;
+        File dir = new File(source);
+        if (dir.isDirectory()) {
+            run(dir);
+            return;
+        }
+        // a vertex count: generate the data and write it out for the file benchmarks, then clean it up
+        dir = Files.createTempDirectory("kevinbacon").toFile();
+        try {
+            new SyntheticGraphs(Integer.parseInt(source), 42).write(dir);
+            run(dir);
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) for (File file : files) file.delete();
+            dir.delete();
+        }
+    }
+
+    /** Runs every benchmark that passes the filter on the input files in dir */
+    private static void run(File dir) throws IOException {
+        String actors = new File(dir, "actors.txt").getPath();
+        String movies = new File(dir, "movies.txt").getPath();
+        String movieActors = new File(dir, "movie-actors.txt").getPath();
+
+        // Construction
+        bench("construct AdjacencyMapGraph (mainGraph)", 1, () -> BaconGame.mainGraphTest(actors, movies, movieActors));
+        bench("construct CsrGraph", 1, () -> BaconGame.csrGraph(actors, movies, movieActors));
+        bench("construct BipartiteGraph", 1, () -> BaconGame.bipartiteGraph(actors, movies, movieActors));
+
+        Graph<String, Set<String>> map = BaconGame.mainGraphTest(actors, movies, movieActors);
+        CsrGraph<String, Set<String>> csr = new CsrGraph<>(map);
+        BipartiteGraph bipartite = BaconGame.bipartiteGraph(actors, movies, movieActors);
+        File snapshot = File.createTempFile("kevinbacon", ".snapshot");
+        snapshot.deleteOnExit();
+        GraphSnapshot.write(csr, snapshot);
+        MappedGraph mapped = GraphSnapshot.map(snapshot);
+        System.out.println(map.numVertices() + " vertices, " + map.numEdges() + " directed edges");
+
+        // the highest-degree vertex, and random queries
+        String hub = null;
+        List<String> names = new ArrayList<>();
+        for (String v : map.vertices()) {
+            names.add(v);
+            if (hub == null || map.outDegree(v) > map.outDegree(hub)) hub = v;
+        }
+        String center = map.hasVertex("Kevin Bacon") ? "Kevin Bacon" : hub;
+        Random random = new Random(42);
+        String[] from = new String[QUERIES], to = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            from[i] = names.get(random.nextInt(names.size()));
+            to[i] = names.get(random.nextInt(names.size()));
+        }
+        // pairs that are edges, for getLabel
+        String[] edgeFrom = new String[QUERIES], edgeTo = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String u = from[i];
+            while (map.outDegree(u) == 0) u = names.get(random.nextInt(names.size()));
+            edgeFrom[i] = u;
+            for (String v : map.outNeighbors(u)) edgeTo[i] = v;
+        }
+
+        // Basic operations
+        Map<String, Graph<String, Set<String>>> graphs = new LinkedHashMap<>();
+        graphs.put("AdjacencyMapGraph", map);
+        graphs.put("CsrGraph", csr);
+        graphs.put("MappedGraph", mapped);
+        graphs.put("BipartiteGraph", bipartite);
+        for (Map.Entry<String, Graph<String, Set<String>>> entry : graphs.entrySet()) {
+            Graph<String, Set<String>> graph = entry.getValue();
+            bench("hasEdge " + entry.getKey(), QUERIES, () -> {
+                int found = 0;
+                for (int i = 0; i < QUERIES; i++) if (graph.hasEdge(from[i], to[i])) found++;
+                return found;
+            });
+            bench("getLabel " + entry.getKey(), QUERIES, () -> {
+                int movieCount = 0;
+                for (int i = 0; i < QUERIES; i++) movieCount += graph.getLabel(edgeFrom[i], edgeTo[i]).size();
+                return movieCount;
+            });
+            bench("outNeighbors " + entry.getKey(), QUERIES, () -> {
+                int seen = 0;
+                for (int i = 0; i < QUERIES; i++) for (String v : graph.outNeighbors(from[i])) seen += v.length();
+                return seen;
+            });
+        }
+
+        // Single-source BFS
+        bench("bfs BaconGame.bfs", 1, () -> BaconGame.bfs(map, center));
+        Map<String, BreadthFirstSearch<String, Set<String>>> searches = new LinkedHashMap<>();
+        searches.put("CsrGraph", new BreadthFirstSearch<>(csr));
+        BreadthFirstSearch<String, Set<String>> optimizing = new BreadthFirstSearch<>(csr);
+        optimizing.setDirectionOptimizing(true);
+        searches.put("CsrGraph direction-optimizing", optimizing);
+        searches.put("MappedGraph", new BreadthFirstSearch<>(mapped));
+        searches.put("BipartiteGraph", BreadthFirstSearch.forGraph(bipartite));
+        for (Map.Entry<String, BreadthFirstSearch<String, Set<String>>> entry : searches.entrySet()) {
+            BreadthFirstSearch<String, Set<String>> search = entry.getValue();
+            bench("bfs " + entry.getKey(), 1, () -> search.run(center).numVertices());
+        }
+
+        // Path reconstruction, from a tree built once
+        Graph<String, Set<String>> legacyTree = BaconGame.bfs(map, center);
+        bench("path BaconGame.getPath", QUERIES, () -> {
+            int length = 0;
+            for (int i = 0; i < QUERIES; i++) if (legacyTree.hasVertex(to[i])) length += BaconGame.getPath(legacyTree, to[i]).size();
+            return length;
+        });
+        BreadthFirstSearch<String, Set<String>> treeSearch = new BreadthFirstSearch<>(csr);
+        ShortestPathTree<String, Set<String>> tree = treeSearch.run(center);
+        bench("path ShortestPathTree.getPath", QUERIES, () -> {
+            int length = 0;
+            for (int i = 0; i < QUERIES; i++) if (tree.hasVertex(to[i])) length += tree.getPath(to[i]).size();
+            return length;
+        });
+        BidirectionalSearch<String, Set<String>> bidirectional = new BidirectionalSearch<>(csr);
+        bench("path BidirectionalSearch (no tree)", QUERIES, () -> {
+            int length = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                ShortestPath<String, Set<String>> path = bidirectional.find(center, to[i]);
+                if (path != null) length += path.length();
+            }
+            return length;
+        });
+
+        // All-sources closeness
+        int threads = Runtime.getRuntime().availableProcessors();
+        bench("closeness CsrGraph", 1, () -> ClosenessCentrality.averageSeparations(csr, -1, threads));
+        bench("closeness CsrGraph bit-parallel", 1, () -> ClosenessCentrality.averageSeparationsBitParallel(csr, -1, threads));
+        bench("closeness BipartiteGraph", 1, () -> ClosenessCentrality.averageSeparations(bipartite, -1, threads));
+
+        System.out.println("(sink " + sink + ")");
+    }
+}
@@ -0,0 +1,291 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Binary snapshot of a co-star graph, written once and then memory-mapped for fast startup
+ * Every section is a run of big-endian ints, or UTF-8 bytes for the string tables:
+ *   header        magic, version, flags, vertex count n, movie count, adjacency size m, label size,
+ *                 then the byte offset of each section below, and a 64-bit stamp of the input files
+ *   vertex names  n+1 byte offsets into the UTF-8 bytes that follow; ids are in String.compareTo
+ *                 order of the names, so a name is found by binary search
+ *   movie titles  same layout, ids in order of first appearance
+ *   out offsets   n+1 row starts into the targets
+ *   out targets   m neighbor ids, sorted within each row
+ *   label starts  m indices into the label movies, one per adjacency slot; both directions of an
+ *                 undirected edge share one entry
+ *   label movies  for each label, its movie count followed by that many movie ids
+ * Directed graphs also get in offsets / in targets sections; undirected ones use the out sections
+ * for both directions
+ */
+public class GraphSnapshot {
+    public static final int MAGIC = 0x4B424753;	// "KBGS"
+    public static final int VERSION = 2;
+    public static final int UNDIRECTED = 1;		// flag: every edge is mirrored with the same label
+
+    // Positions of the header fields, in ints
+    static final int FLAGS = 2, VERTICES = 3, MOVIES = 4, SLOTS = 5, LABEL_INTS = 6;
+    static final int VERTEX_NAMES = 7, MOVIE_NAMES = 8, OUT_OFFSETS = 9, OUT_TARGETS = 10,
+            LABEL_STARTS = 11, LABEL_MOVIES = 12, IN_OFFSETS = 13, IN_TARGETS = 14;
+    static final int STAMP_HIGH = 15, STAMP_LOW = 16;
+    static final int HEADER_INTS = 17;
+
+    /**
+     * Writes a graph as a snapshot, with no stamp
+     *
+     * @param graph co-star graph, labeled by movie titles
+     * @param file file to write
+     */
+    public static void write(Graph<String, ? extends Collection<String>> graph, File file) throws IOException {
+        write(graph, file, 0);
+    }
+
+    /**
+     * Writes a graph as a snapshot; the bytes go to a temporary file in the same directory, which is
+     * synced and then moved over the file in one step, so a crash never leaves a cut-short snapshot
+     * and processes that already mapped the old file keep reading it intact
+     *
+     * @param graph co-star graph, labeled by movie titles
+     * @param file file to write
+     * @param stamp stamp of the files the graph was loaded from, see stamp
+     */
+    public static void write(Graph<String, ? extends Collection<String>> graph, File file, long stamp)
+            throws IOException {
+        // vertex ids in name order
+        List<String> names = new ArrayList<>();
+        for (String v : graph.vertices()) names.add(v);
+        Collections.sort(names);
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) ids.put(names.get(i), i);
+        int n = names.size();
+
+        boolean undirected = true;
+        int[] outOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++) outOffsets[u + 1] = outOffsets[u] + graph.outDegree(names.get(u));
+        int[] outTargets = rows(graph, names, ids, outOffsets, true);
+        for (int u = 0; u < n && undirected; u++) {
+            String uv = names.get(u);
+            for (int slot = outOffsets[u]; slot < outOffsets[u + 1]; slot++) {
+                String w = names.get(outTargets[slot]);
+                if (!graph.hasEdge(w, uv) || !Objects.equals(graph.getLabel(w, uv), graph.getLabel(uv, w))) {
+                    undirected = false;
+                    break;
+                }
+            }
+        }
+
+        // labels, interning movie titles; the reverse slot of an undirected edge reuses the label
+        List<String> titles = new ArrayList<>();
+        Map<String, Integer> movieIds = new HashMap<>();
+        int[] labelStarts = new int[outTargets.length];
+        IntList labelMovies = new IntList();
+        for (int u = 0; u < n; u++) {
+            for (int slot = outOffsets[u]; slot < outOffsets[u + 1]; slot++) {
+                int v = outTargets[slot];
+                if (undirected && v < u) {
+                    labelStarts[slot] = labelStarts[Arrays.binarySearch(outTargets, outOffsets[v], outOffsets[v + 1], u)];
+                    continue;
+                }
+                Collection<String> label = graph.getLabel(names.get(u), names.get(v));
+                labelStarts[slot] = labelMovies.size();
+                labelMovies.add(label == null ? 0 : label.size());
+                if (label == null) continue;
+                for (String title : label) {
+                    String key = String.valueOf(title);
+                    Integer id = movieIds.get(key);
+                    if (id == null) {
+                        id = titles.size();
+                        movieIds.put(key, id);
+                        titles.add(key);
+                    }
+                    labelMovies.add(id);
+                }
+            }
+        }
+
+        int[] inOffsets = null, inTargets = null;
+        if (!undirected) {
+            inOffsets = new int[n + 1];
+            for (int u = 0; u < n; u++) inOffsets[u + 1] = inOffsets[u] + graph.inDegree(names.get(u));
+            inTargets = rows(graph, names, ids, inOffsets, false);
+        }
+
+        byte[][] vertexBytes = encode(names), movieBytes = encode(titles);
+        int[] header = new int[HEADER_INTS];
+        header[0] = MAGIC;
+        header[1] = VERSION;
+        header[FLAGS] = undirected ? UNDIRECTED : 0;
+        header[VERTICES] = n;
+        header[MOVIES] = titles.size();
+        header[SLOTS] = outTargets.length;
+        header[LABEL_INTS] = labelMovies.size();
+        header[STAMP_HIGH] = (int) (stamp >>> 32);
+        header[STAMP_LOW] = (int) stamp;
+        long position = 4L * HEADER_INTS;
+        header[VERTEX_NAMES] = (int) position;
+        position += stringTableBytes(vertexBytes);
+        header[MOVIE_NAMES] = (int) position;
+        position += stringTableBytes(movieBytes);
+        header[OUT_OFFSETS] = (int) position;
+        position += 4L * outOffsets.length;
+        header[OUT_TARGETS] = (int) position;
+        position += 4L * outTargets.length;
+        header[LABEL_STARTS] = (int) position;
+        position += 4L * labelStarts.length;
+        header[LABEL_MOVIES] = (int) position;
+        position += 4L * labelMovies.size();
+        header[IN_OFFSETS] = undirected ? header[OUT_OFFSETS] : (int) position;
+        position += undirected ? 0 : 4L * inOffsets.length;
+        header[IN_TARGETS] = undirected ? header[OUT_TARGETS] : (int) position;
+        position += undirected ? 0 : 4L * inTargets.length;
+        if (position > Integer.MAX_VALUE) {
+            throw new IOException("Graph too large for a snapshot: " + position + " bytes");
+        }
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+                writeInts(out, header, header.length);
+                writeStringTable(out, vertexBytes);
+                writeStringTable(out, movieBytes);
+                writeInts(out, outOffsets, outOffsets.length);
+                writeInts(out, outTargets, outTargets.length);
+                writeInts(out, labelStarts, labelStarts.length);
+                writeInts(out, labelMovies.values(), labelMovies.size());
+                if (!undirected) {
+                    writeInts(out, inOffsets, inOffsets.length);
+                    writeInts(out, inTargets, inTargets.length);
+                }
+                out.flush();
+                fileOut.getChannel().force(true);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmp.delete();	// only still there if writing or moving failed
+        }
+    }
+
+    /**
+     * Maps a snapshot into memory
+     *
+     * @param file snapshot written by write
+     * @return read-only graph answering queries from the mapped file
+     */
+    public static MappedGraph map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Snapshot too large to map: " + file);
+            // the mapping stays valid after the channel is closed
+            return new MappedGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Stamps input files by their paths, sizes and modification times, so a snapshot built from them
+     * can tell when they change
+     *
+     * @param inputs files a graph is loaded from
+     * @return hash of the files' paths, sizes and modification times
+     */
+    public static long stamp(File... inputs) {
+        long stamp = 17;
+        for (File input : inputs) {
+            stamp = 31 * stamp + input.getAbsolutePath().hashCode();
+            stamp = 31 * stamp + input.length();
+            stamp = 31 * stamp + input.lastModified();
+        }
+        return stamp;
+    }
+
+    /**
+     * Checks whether a snapshot exists in the current format and was built from inputs with this stamp,
+     * reading only its header
+     *
+     * @param file snapshot file
+     * @param stamp stamp of the input files
+     * @return true if the snapshot can be mapped as is, false if it should be rebuilt
+     */
+    public static boolean isCurrent(File file, long stamp) throws IOException {
+        if (file.length() < 4L * HEADER_INTS) return false;	// missing, or too short for a header
+        int[] header = new int[HEADER_INTS];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            for (int i = 0; i < HEADER_INTS; i++) header[i] = in.readInt();
+        }
+        return header[0] == MAGIC && header[1] == VERSION
+                && ((long) header[STAMP_HIGH] << 32 | header[STAMP_LOW] & 0xFFFFFFFFL) == stamp
+                && file.length() == length(header);
+    }
+
+    /**
+     * Size in bytes of a snapshot with this header: the end of its last section
+     *
+     * @param header header ints of a snapshot in the current version
+     */
+    static long length(int[] header) {
+        long end = header[LABEL_MOVIES] + 4L * header[LABEL_INTS];
+        if ((header[FLAGS] & UNDIRECTED) == 0) end = Math.max(end, header[IN_TARGETS] + 4L * header[SLOTS]);
+        return end;
+    }
+
+    /** Neighbor ids of each vertex, sorted within each row */
+    private static int[] rows(Graph<String, ?> graph, List<String> names, Map<String, Integer> ids,
+                              int[] offsets, boolean out) {
+        int[] targets = new int[offsets[names.size()]];
+        for (int u = 0; u < names.size(); u++) {
+            int slot = offsets[u];
+            String uv = names.get(u);
+            for (String w : out ? graph.outNeighbors(uv) : graph.inNeighbors(uv)) targets[slot++] = ids.get(w);
+            Arrays.sort(targets, offsets[u], offsets[u + 1]);
+        }
+        return targets;
+    }
+
+    private static byte[][] encode(List<String> strings) {
+        byte[][] bytes = new byte[strings.size()][];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+        return bytes;
+    }
+
+    private static long stringTableBytes(byte[][] strings) {
+        long size = 4L * (strings.length + 1);
+        for (byte[] s : strings) size += s.length;
+        return size;
+    }
+
+    private static void writeStringTable(DataOutputStream out, byte[][] strings) throws IOException {
+        int offset = 0;
+        out.writeInt(offset);
+        for (byte[] s : strings) out.writeInt(offset += s.length);
+        for (byte[] s : strings) out.write(s);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) out.writeInt(values[i]);
+    }
+
+    /** Growable int array */
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] values() {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.*;
+
+/**
+ * Distances from a center in a live undirected graph, repaired as edges come and go instead of
+ * being recomputed: an insertion spreads shorter distances out from the edge, and a removal finds
+ * the vertices that lost every shortest path (Ramalingam & Reps) and settles just those again from
+ * their unaffected neighbors
+ * The graph must be told about first; call edgeInserted / edgeRemoved right after each change
+ *
+ * @param <V>	the type of vertices
+ */
+public class IncrementalDistances<V> {
+    private final Graph<V, ?> graph;
+    private final V center;
+    private final Map<V, Integer> dist = new HashMap<V, Integer>();	// reachable vertices only
+    private long touched;		// vertices whose distance was set, over all updates, for reporting
+
+    /**
+     * Computes the initial distances by BFS
+     *
+     * @param graph undirected graph that will be kept track of
+     * @param center vertex the distances are from
+     */
+    public IncrementalDistances(Graph<V, ?> graph, V center) {
+        this.graph = graph;
+        this.center = center;
+        dist.put(center, 0);
+        spread(center);
+    }
+
+    public V getCenter() {
+        return center;
+    }
+
+    /** Number of edges on a shortest path from the center to v, or -1 if there is none */
+    public int distance(V v) {
+        Integer d = dist.get(v);
+        return d == null ? -1 : d;
+    }
+
+    /** How many vertices have a path from the center, the center included */
+    public int numReachable() {
+        return dist.size();
+    }
+
+    /** How many times a vertex's distance has been set, including the initial BFS */
+    public long getTouched() {
+        return touched;
+    }
+
+    /**
+     * Repairs the distances after an edge between u and v was added
+     */
+    public void edgeInserted(V u, V v) {
+        relax(u, v);
+        relax(v, u);
+    }
+
+    /** If going through u shortens the way to v, takes it and spreads the improvement */
+    private void relax(V u, V v) {
+        int du = distance(u), dv = distance(v);
+        if (du >= 0 && (dv < 0 || du + 1 < dv)) {
+            dist.put(v, du + 1);
+            touched++;
+            spread(v);
+        }
+    }
+
+    /** BFS out from v, lowering every distance that a path through v improves */
+    private void spread(V v) {
+        Queue<V> queue = new ArrayDeque<V>();
+        queue.add(v);
+        while (!queue.isEmpty()) {
+            V u = queue.remove();
+            int d = dist.get(u) + 1;
+            for (V w : graph.outNeighbors(u)) {
+                Integer dw = dist.get(w);
+                if (dw == null || d < dw) {
+                    dist.put(w, d);
+                    touched++;
+                    queue.add(w);
+                }
+            }
+        }
+    }
+
+    /**
+     * Repairs the distances after the edge between u and v was removed
+     */
+    public void edgeRemoved(V u, V v) {
+        int du = distance(u), dv = distance(v);
+        if (du < 0 || dv < 0 || Math.abs(du - dv) != 1) return;	// the edge was on no shortest path
+        V far = du < dv ? v : u;
+        if (hasSupport(far, Collections.<V>emptySet())) return;
+
+        // Vertices that lost every shortest path, found level by level, so all of a vertex's
+        // possible supports one level up are already decided when it is checked
+        Set<V> affected = new LinkedHashSet<V>();
+        Queue<V> queue = new ArrayDeque<V>();
+        affected.add(far);
+        queue.add(far);
+        while (!queue.isEmpty()) {
+            V y = queue.remove();
+            int below = dist.get(y) + 1;
+            for (V z : graph.outNeighbors(y)) {
+                if (distance(z) == below && !affected.contains(z) && !hasSupport(z, affected)) {
+                    affected.add(z);
+                    queue.add(z);
+                }
+            }
+        }
+
+        // Settle the affected vertices again, nearest first, starting from their unaffected neighbors
+        for (V a : affected) dist.remove(a);
+        PriorityQueue<Map.Entry<V, Integer>> pending =
+                new PriorityQueue<Map.Entry<V, Integer>>(Map.Entry.comparingByValue());
+        for (V a : affected) {
+            int best = -1;
+            for (V w : graph.outNeighbors(a)) {
+                int dw = distance(w);
+                if (dw >= 0 && (best < 0 || dw + 1 < best)) best = dw + 1;
+            }
+            if (best >= 0) pending.add(new AbstractMap.SimpleEntry<V, Integer>(a, best));
+        }
+        while (!pending.isEmpty()) {
+            Map.Entry<V, Integer> next = pending.remove();
+            V a = next.getKey();
+            if (dist.containsKey(a)) continue;	// already settled closer
+            dist.put(a, next.getValue());
+            touched++;
+            for (V w : graph.outNeighbors(a)) {
+                if (affected.contains(w) && !dist.containsKey(w)) {
+                    pending.add(new AbstractMap.SimpleEntry<V, Integer>(w, next.getValue() + 1));
+                }
+            }
+        }
+    }
+
+    /** Whether v still has a neighbor one step closer to the center, other than the excluded ones */
+    private boolean hasSupport(V v, Set<V> excluded) {
+        int above = dist.get(v) - 1;
+        for (V w : graph.outNeighbors(v)) {
+            if (distance(w) == above && !excluded.contains(w)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.*;
+
+/**
+ * Randomized check of IncrementalDistances against full searches: a MovieIngestor adds new movies
+ * and removes new and original ones on a synthetic co-star graph, with distances registered from a
+ * few centers, and after every batch each center's repaired distances must equal those of a
+ * BreadthFirstSearch over a CsrGraph built fresh from the graph, for every actor
+ * Small graphs break apart more easily, so removals also exercise vertices losing their last path
+ * Exits with status 1 if any distance differs
+ *
+ * Usage: IncrementalDistancesCheck [batches] [actors] [seed]
+ */
+public class IncrementalDistancesCheck {
+    private static final int BATCH = 20;		// movie changes between checks
+    private static final int CENTERS = 3;		// Kevin Bacon and this many minus one random actors
+
+    public static void main(String[] args) {
+        int batches = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int numActors = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        SyntheticGraphs data = new SyntheticGraphs(numActors, seed);
+        Graph<String, Set<String>> graph = data.graph();
+        Random random = new Random(seed);
+        List<String> actors = new ArrayList<>();
+        for (String actor : graph.vertices()) actors.add(actor);
+        Collections.sort(actors);	// iteration order is not fixed; the seed should be
+
+        // the movies that can be removed: the original ones, and each new one once it is added
+        List<String> titles = new ArrayList<>();
+        Map<String, List<String>> casts = new HashMap<>();
+        for (String movie : data.getMovieActors().keySet()) {
+            List<String> cast = new ArrayList<>();
+            for (String actor : data.getMovieActors().get(movie)) cast.add(data.getActors().get(actor));
+            titles.add(data.getMovies().get(movie));
+            casts.put(data.getMovies().get(movie), cast);
+        }
+        Collections.sort(titles);
+
+        MovieIngestor ingestor = new MovieIngestor(graph);
+        List<IncrementalDistances<String>> registered = new ArrayList<>();
+        registered.add(ingestor.register("Kevin Bacon"));
+        for (int c = 1; c < CENTERS; c++) registered.add(ingestor.register(actors.get(random.nextInt(actors.size()))));
+        System.out.println(graph.numVertices() + " actors, " + graph.numEdges() + " directed edges, " + titles.size()
+                + " movies, centers " + centers(registered));
+
+        long mismatches = 0, added = 0, removed = 0;
+        for (int batch = 0; batch < batches; batch++) {
+            for (int change = 0; change < BATCH; change++) {
+                if (titles.isEmpty() || random.nextBoolean()) {
+                    // a new movie with a few existing actors, now and then a new one among them
+                    String title = "Check Movie " + batch + "-" + change;
+                    List<String> cast = new ArrayList<>();
+                    for (int i = 2 + random.nextInt(4); i > 0; i--) cast.add(actors.get(random.nextInt(actors.size())));
+                    if (random.nextInt(10) == 0) {
+                        String actor = "Check Actor " + batch + "-" + change;
+                        cast.add(actor);
+                        actors.add(actor);
+                    }
+                    ingestor.addMovie(title, cast);
+                    titles.add(title);
+                    casts.put(title, cast);
+                    added++;
+                } else {
+                    String title = titles.remove(random.nextInt(titles.size()));
+                    ingestor.removeMovie(title, casts.remove(title));
+                    removed++;
+                }
+            }
+            mismatches += compare(graph, registered);
+        }
+        System.out.println(batches + " batches: " + added + " movies added, " + removed + " removed, "
+                + graph.numEdges() + " directed edges left, " + mismatches + " mismatched distances");
+        if (mismatches > 0) System.exit(1);
+    }
+
+    /** Number of vertices whose repaired distance from some center differs from a fresh search */
+    private static long compare(Graph<String, Set<String>> graph, List<IncrementalDistances<String>> registered) {
+        BreadthFirstSearch<String, Set<String>> search = new BreadthFirstSearch<>(new CsrGraph<>(graph));
+        long mismatches = 0;
+        for (IncrementalDistances<String> distances : registered) {
+            ShortestPathTree<String, Set<String>> tree = search.run(distances.getCenter());
+            for (String v : graph.vertices()) {
+                if (distances.distance(v) != tree.distance(v)) {
+                    if (mismatches++ < 10) {
+                        System.out.println(distances.getCenter() + " to " + v + ": " + distances.distance(v)
+                                + ", expected " + tree.distance(v));
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static List<String> centers(List<IncrementalDistances<String>> registered) {
+        List<String> centers = new ArrayList<>();
+        for (IncrementalDistances<String> distances : registered) centers.add(distances.getCenter());
+        return centers;
+    }
+}
@@ -0,0 +1,41 @@
+import java.util.function.IntConsumer;
+
+/**
+ * A graph whose vertices are numbered with dense int ids, so traversals can keep their state in
+ * arrays indexed by id instead of in maps keyed by vertex
+ * Unlike the adapters in Graph, every id method takes constant time, and ids never change, so a search
+ * can size its buffers once for the life of the graph
+ *
+ * @param <V>	the type of vertices
+ * @param <E>	the type of edge labels
+ */
+public interface IndexedGraph<V,E> extends Graph<V,E> {
+    /** Every vertex id is in [0, vertexIdBound()) */
+    public int vertexIdBound();
+
+    /** The id of v, or -1 if v is not a vertex */
+    public int vertexId(V v);
+
+    /** The vertex with the given id */
+    public V vertexAt(int id);
+
+    /** How many edges from the vertex with the given id */
+    public int outDegreeOf(int id);
+
+    /** The id of the k-th out-neighbor of the vertex with the given id, 0 <= k < outDegreeOf(id) */
+    public int outNeighborAt(int id, int k);
+
+    /** How many edges to the vertex with the given id */
+    public int inDegreeOf(int id);
+
+    /** The id of the k-th in-neighbor of the vertex with the given id, 0 <= k < inDegreeOf(id) */
+    public int inNeighborAt(int id, int k);
+
+    public default void forEachOutNeighbor(int id, IntConsumer action) {
+        for (int k = 0, degree = outDegreeOf(id); k < degree; k++) action.accept(outNeighborAt(id, k));
+    }
+
+    public default void forEachInNeighbor(int id, IntConsumer action) {
+        for (int k = 0, degree = inDegreeOf(id); k < degree; k++) action.accept(inNeighborAt(id, k));
+    }
+}
@@ -0,0 +1,253 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Read-only co-star graph answering every query straight from the buffers of a GraphSnapshot,
+ * normally a memory-mapped file, so loading costs no parsing and processes mapping the same
+ * file share its pages
+ * Names and titles are decoded from UTF-8 when asked for; a name is looked up by binary search
+ * over the sorted vertex names
+ */
+public class MappedGraph implements IndexedGraph<String, Set<String>> {
+    private final ByteBuffer buffer;
+    private final boolean undirected;
+    private final int numVertices, numMovies;
+    private final IntBuffer vertexOffsets, movieOffsets;	// string table offsets, relative to the bytes after them
+    private final int vertexBytes, movieBytes;			// where the bytes of each string table start
+    private final IntBuffer outOffsets, outTargets, inOffsets, inTargets;
+    private final IntBuffer labelStarts, labelMovies;
+
+    /**
+     * Wraps the contents of a snapshot
+     *
+     * @param buffer snapshot bytes, from position 0
+     */
+    public MappedGraph(ByteBuffer buffer) {
+        this.buffer = buffer;
+        IntBuffer header = ints(0, GraphSnapshot.HEADER_INTS);
+        if (header.get(0) != GraphSnapshot.MAGIC) throw new IllegalArgumentException("Not a graph snapshot");
+        if (header.get(1) != GraphSnapshot.VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + header.get(1));
+        }
+        int[] fields = new int[GraphSnapshot.HEADER_INTS];
+        header.get(0, fields);
+        if (buffer.capacity() < GraphSnapshot.length(fields)) {
+            throw new IllegalArgumentException("Snapshot cut short: " + buffer.capacity() + " of "
+                    + GraphSnapshot.length(fields) + " bytes");
+        }
+        undirected = (header.get(GraphSnapshot.FLAGS) & GraphSnapshot.UNDIRECTED) != 0;
+        numVertices = header.get(GraphSnapshot.VERTICES);
+        numMovies = header.get(GraphSnapshot.MOVIES);
+        int slots = header.get(GraphSnapshot.SLOTS);
+        vertexOffsets = ints(header.get(GraphSnapshot.VERTEX_NAMES), numVertices + 1);
+        vertexBytes = header.get(GraphSnapshot.VERTEX_NAMES) + 4 * (numVertices + 1);
+        movieOffsets = ints(header.get(GraphSnapshot.MOVIE_NAMES), numMovies + 1);
+        movieBytes = header.get(GraphSnapshot.MOVIE_NAMES) + 4 * (numMovies + 1);
+        outOffsets = ints(header.get(GraphSnapshot.OUT_OFFSETS), numVertices + 1);
+        outTargets = ints(header.get(GraphSnapshot.OUT_TARGETS), slots);
+        labelStarts = ints(header.get(GraphSnapshot.LABEL_STARTS), slots);
+        labelMovies = ints(header.get(GraphSnapshot.LABEL_MOVIES), header.get(GraphSnapshot.LABEL_INTS));
+        inOffsets = undirected ? outOffsets : ints(header.get(GraphSnapshot.IN_OFFSETS), numVertices + 1);
+        inTargets = undirected ? outTargets : ints(header.get(GraphSnapshot.IN_TARGETS), slots);
+    }
+
+    /** View of count ints starting at the given byte position */
+    private IntBuffer ints(int position, int count) {
+        return buffer.duplicate().position(position).limit(position + 4 * count).slice().asIntBuffer();
+    }
+
+    /** Decodes entry i of a string table */
+    private String string(IntBuffer offsets, int bytes, int i) {
+        int start = offsets.get(i), length = offsets.get(i + 1) - start;
+        byte[] utf8 = new byte[length];
+        buffer.get(bytes + start, utf8, 0, length);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /** The title of the movie with the given id */
+    public String movieAt(int id) {
+        return string(movieOffsets, movieBytes, id);
+    }
+
+    /** Whether the graph was written as undirected, with one adjacency for both directions */
+    public boolean isUndirected() {
+        return undirected;
+    }
+
+    public int vertexIdBound() {
+        return numVertices;
+    }
+
+    public int vertexId(String v) {
+        int low = 0, high = numVertices - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = vertexAt(mid).compareTo(v);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    public String vertexAt(int id) {
+        return string(vertexOffsets, vertexBytes, id);
+    }
+
+    public int outDegreeOf(int id) {
+        return outOffsets.get(id + 1) - outOffsets.get(id);
+    }
+
+    public int outNeighborAt(int id, int k) {
+        return outTargets.get(outOffsets.get(id) + k);
+    }
+
+    public int inDegreeOf(int id) {
+        return inOffsets.get(id + 1) - inOffsets.get(id);
+    }
+
+    public int inNeighborAt(int id, int k) {
+        return inTargets.get(inOffsets.get(id) + k);
+    }
+
+    private int id(String v) {
+        int id = vertexId(v);
+        if (id < 0) throw new IllegalArgumentException("Not a vertex: " + v);
+        return id;
+    }
+
+    /** Position of target t in the sorted out row of u, or -1 */
+    private int slot(int u, int t) {
+        int low = outOffsets.get(u), high = outOffsets.get(u + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int target = outTargets.get(mid);
+            if (target < t) low = mid + 1;
+            else if (target > t) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /** The names of the vertices in a row of a target buffer */
+    private Iterable<String> row(IntBuffer targets, int start, int end) {
+        return new AbstractList<String>() {
+            public String get(int i) {
+                return vertexAt(targets.get(start + i));
+            }
+
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+
+    /** The movie titles of the label starting at the given index of the label movies */
+    private Set<String> label(int start) {
+        int count = labelMovies.get(start);
+        return new AbstractSet<String>() {
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    int i = 0;
+
+                    public boolean hasNext() {
+                        return i < count;
+                    }
+
+                    public String next() {
+                        if (i >= count) throw new NoSuchElementException();
+                        return movieAt(labelMovies.get(start + 1 + i++));
+                    }
+                };
+            }
+
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    public int numVertices() {
+        return numVertices;
+    }
+
+    public int numEdges() {
+        return outTargets.limit();
+    }
+
+    public Iterable<String> vertices() {
+        return new AbstractList<String>() {
+            public String get(int i) {
+                return vertexAt(i);
+            }
+
+            public int size() {
+                return numVertices;
+            }
+        };
+    }
+
+    public boolean hasVertex(String v) {
+        return vertexId(v) >= 0;
+    }
+
+    public int outDegree(String v) {
+        return outDegreeOf(id(v));
+    }
+
+    public int inDegree(String v) {
+        return inDegreeOf(id(v));
+    }
+
+    public Iterable<String> outNeighbors(String v) {
+        int i = id(v);
+        return row(outTargets, outOffsets.get(i), outOffsets.get(i + 1));
+    }
+
+    public Iterable<String> inNeighbors(String v) {
+        int i = id(v);
+        return row(inTargets, inOffsets.get(i), inOffsets.get(i + 1));
+    }
+
+    public boolean hasEdge(String u, String v) {
+        int i = vertexId(u), j = vertexId(v);
+        return i >= 0 && j >= 0 && slot(i, j) >= 0;
+    }
+
+    public Set<String> getLabel(String u, String v) {
+        int i = vertexId(u), j = vertexId(v);
+        if (i < 0 || j < 0) return null;
+        int slot = slot(i, j);
+        return slot < 0 ? null : label(labelStarts.get(slot));
+    }
+
+    public void insertVertex(String v) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    public void insertDirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    public void insertUndirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    public void removeVertex(String v) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    public void removeDirected(String u, String v) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    public void removeUndirected(String u, String v) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    public String toString() {
+        return "MappedGraph: " + numVertices + " vertices, " + numEdges() + " edges, " + numMovies + " movies";
+    }
+}
@@ -0,0 +1,179 @@
+import jdk.jfr.*;
+
+/**
+ * Instrumentation for loading, graph building and traversal: stage timers, vertices visited and edges
+ * scanned by each search, and an estimate of the heap a graph takes
+ * Everything goes both to the installed MetricsRegistry and, while a flight recording has them
+ * enabled, to the JFR events below, so a slow query can be traced to parsing, building or searching
+ * With no registry installed and no recording running, start() returns OFF and every call is a
+ * check of two flags
+ */
+public class Metrics {
+    /** Returned by start() when nothing is listening; stage() then does nothing */
+    public static final long OFF = Long.MIN_VALUE;
+
+    private static volatile MetricsRegistry registry = MetricsRegistry.NONE;
+
+    // rough per-object sizes with compressed oops, for estimateBytes
+    private static final int HASH_ENTRY = 36;	// HashMap node plus its table slot
+    private static final int HASH_MAP = 64;		// HashMap with a small table
+    private static final int LABEL = 32;		// one MovieSet label
+
+    @Name("kevinbacon.Stage")
+    @Label("Stage")
+    @Category("Kevin Bacon")
+    @Description("One run of a loading, building or query stage")
+    @StackTrace(false)
+    static class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+        @Label("Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+        @Label("Items")
+        @Description("Lines read, edges built or vertices handled, depending on the stage")
+        long items;
+    }
+
+    @Name("kevinbacon.Traversal")
+    @Label("Traversal")
+    @Category("Kevin Bacon")
+    @Description("One breadth-first search")
+    @StackTrace(false)
+    static class TraversalEvent extends Event {
+        @Label("Kind")
+        String kind;
+        @Label("Vertices Visited")
+        long vertices;
+        @Label("Edges Scanned")
+        long edges;
+    }
+
+    @Name("kevinbacon.GraphSize")
+    @Label("Graph Size")
+    @Category("Kevin Bacon")
+    @Description("Size of a graph that was built or loaded")
+    @StackTrace(false)
+    static class GraphSizeEvent extends Event {
+        @Label("Graph")
+        String graph;
+        @Label("Vertices")
+        long vertices;
+        @Label("Edges")
+        long edges;
+        @Label("Estimated Heap")
+        @DataAmount
+        long bytes;
+    }
+
+    private static final EventType STAGE = EventType.getEventType(StageEvent.class);
+    private static final EventType TRAVERSAL = EventType.getEventType(TraversalEvent.class);
+    private static final EventType GRAPH_SIZE = EventType.getEventType(GraphSizeEvent.class);
+
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /** Installs a registry; MetricsRegistry.NONE turns recording off again, apart from JFR */
+    public static void setRegistry(MetricsRegistry registry) {
+        Metrics.registry = registry == null ? MetricsRegistry.NONE : registry;
+    }
+
+    /** Whether anything would record a measurement */
+    public static boolean isEnabled() {
+        return registry != MetricsRegistry.NONE || STAGE.isEnabled() || TRAVERSAL.isEnabled();
+    }
+
+    /** The start time of a stage, or OFF when nothing is listening */
+    public static long start() {
+        return registry != MetricsRegistry.NONE || STAGE.isEnabled() ? System.nanoTime() : OFF;
+    }
+
+    /**
+     * Ends a stage
+     *
+     * @param stage stage name, e.g. "linkMap"
+     * @param start what start() returned when the stage began
+     * @param items how much the stage handled
+     */
+    public static void stage(String stage, long start, long items) {
+        if (start == OFF) return;
+        long nanos = System.nanoTime() - start;
+        MetricsRegistry registry = Metrics.registry;
+        registry.timer(stage, nanos);
+        registry.count(stage + ".items", items);
+        if (STAGE.isEnabled()) {
+            StageEvent event = new StageEvent();
+            event.stage = stage;
+            event.nanos = nanos;
+            event.items = items;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records what one search did
+     *
+     * @param kind which search, e.g. "bfs"
+     * @param vertices vertices it visited
+     * @param edges edges it scanned
+     */
+    public static void traversal(String kind, long vertices, long edges) {
+        MetricsRegistry registry = Metrics.registry;
+        if (registry != MetricsRegistry.NONE) {
+            registry.count(kind + ".vertices", vertices);
+            registry.count(kind + ".edges", edges);
+        }
+        if (TRAVERSAL.isEnabled()) {
+            TraversalEvent event = new TraversalEvent();
+            event.kind = kind;
+            event.vertices = vertices;
+            event.edges = edges;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the size of a graph that was just built or loaded
+     *
+     * @param name what the graph is, e.g. "mainGraph"
+     * @param graph the graph
+     */
+    public static void graphSize(String name, Graph<?, ?> graph) {
+        MetricsRegistry registry = Metrics.registry;
+        if (registry == MetricsRegistry.NONE && !GRAPH_SIZE.isEnabled()) return;
+        long vertices = graph.numVertices(), edges = graph.numEdges(), bytes = estimateBytes(graph);
+        registry.gauge(name + ".vertices", vertices);
+        registry.gauge(name + ".edges", edges);
+        registry.gauge(name + ".bytes", bytes);
+        if (GRAPH_SIZE.isEnabled()) {
+            GraphSizeEvent event = new GraphSizeEvent();
+            event.graph = name;
+            event.vertices = vertices;
+            event.edges = edges;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Rough heap taken by a graph, from its vertex and edge counts and how each implementation stores
+     * them; vertex names and titles are not counted, since the input maps share them
+     */
+    public static long estimateBytes(Graph<?, ?> graph) {
+        long n = graph.numVertices(), m = graph.numEdges();
+        if (graph instanceof MappedGraph) return 0;	// off-heap, in the mapped file
+        if (graph instanceof OffHeapGraph) return 0;	// off-heap, in direct buffers
+        if (graph instanceof BipartiteGraph) {
+            BipartiteGraph bipartite = (BipartiteGraph) graph;
+            return 4L * (2 * n + bipartite.numMovies() + 2L * bipartite.numLinks()) + n * HASH_ENTRY;
+        }
+        if (graph instanceof CsrGraph) {
+            int rows = ((CsrGraph<?, ?>) graph).isUndirected() ? 1 : 2;
+            return rows * 8L * (n + m) + n * HASH_ENTRY + m / rows * LABEL;
+        }
+        // an AdjacencyMapGraph: an out and an in map per vertex, an entry in each per edge,
+        // one label per undirected pair
+        return n * (2L * HASH_MAP + 2 * HASH_ENTRY) + m * (2L * HASH_ENTRY) + m / 2 * LABEL;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Receives the measurements Metrics takes; plug one in with Metrics.setRegistry to send them to a
+ * monitoring system. Implementations must be thread-safe, since searches run on many threads
+ */
+public interface MetricsRegistry {
+    /** Registry that drops everything; while it is installed Metrics records nothing */
+    MetricsRegistry NONE = new MetricsRegistry() {
+        public void timer(String stage, long nanos) {
+        }
+
+        public void count(String name, long amount) {
+        }
+
+        public void gauge(String name, long value) {
+        }
+    };
+
+    /** One run of a stage took the given time */
+    void timer(String stage, long nanos);
+
+    /** Adds to a running count, e.g. vertices visited */
+    void count(String name, long amount);
+
+    /** Sets a current value, e.g. the estimated size of the graph */
+    void gauge(String name, long value);
+}
@@ -0,0 +1,88 @@
+import java.util.*;
+
+/**
+ * Adds and removes movies on a live co-star graph, keeping the movie label sets on its edges up to
+ * date and repairing every registered set of distances as edges appear and disappear
+ * The work is proportional to the size of the cast and to the vertices whose distances change,
+ * not to the size of the graph
+ */
+public class MovieIngestor {
+    private final Graph<String, Set<String>> graph;	// mutable, e.g. an AdjacencyMapGraph
+    private final List<IncrementalDistances<String>> registered = new ArrayList<>();
+    private final TitleTable titles = new TitleTable();	// interns the titles of new labels
+
+    /**
+     * @param graph co-star graph to update in place
+     */
+    public MovieIngestor(Graph<String, Set<String>> graph) {
+        this.graph = graph;
+    }
+
+    public Graph<String, Set<String>> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Starts keeping distances from a center current as movies come and go
+     *
+     * @param center an actor in the graph
+     * @return the distances, repaired on every later update
+     */
+    public IncrementalDistances<String> register(String center) {
+        if (!graph.hasVertex(center)) throw new IllegalArgumentException("Not a vertex: " + center);
+        IncrementalDistances<String> distances = new IncrementalDistances<>(graph, center);
+        registered.add(distances);
+        return distances;
+    }
+
+    /** Stops updating the distances */
+    public void unregister(IncrementalDistances<String> distances) {
+        registered.remove(distances);
+    }
+
+    /**
+     * Adds a movie: new actors become vertices, and every pair in the cast gets the title on its edge
+     *
+     * @param title movie title
+     * @param cast names of the actors in it
+     */
+    public void addMovie(String title, Collection<String> cast) {
+        List<String> actors = new ArrayList<>(new LinkedHashSet<>(cast));
+        for (String actor : actors) graph.insertVertex(actor);
+        for (int i = 0; i < actors.size(); i++) {
+            for (int j = i + 1; j < actors.size(); j++) {
+                String u = actors.get(i), v = actors.get(j);
+                Set<String> label = graph.getLabel(u, v);
+                if (label != null) {
+                    label.add(title);	// already co-stars: no new edge, no distance change
+                    continue;
+                }
+                label = titles.newLabel();
+                label.add(title);
+                graph.insertUndirected(u, v, label);
+                for (IncrementalDistances<String> distances : registered) distances.edgeInserted(u, v);
+            }
+        }
+    }
+
+    /**
+     * Removes a movie: its title comes off the edges between its cast, and pairs left with no movie
+     * in common lose their edge; the actors stay in the graph
+     *
+     * @param title movie title
+     * @param cast names of the actors in it
+     */
+    public void removeMovie(String title, Collection<String> cast) {
+        List<String> actors = new ArrayList<>(new LinkedHashSet<>(cast));
+        for (int i = 0; i < actors.size(); i++) {
+            for (int j = i + 1; j < actors.size(); j++) {
+                String u = actors.get(i), v = actors.get(j);
+                if (!graph.hasVertex(u) || !graph.hasVertex(v)) continue;
+                Set<String> label = graph.getLabel(u, v);
+                if (label == null || !label.remove(title) || !label.isEmpty()) continue;
+                graph.removeUndirected(u, v);
+                for (IncrementalDistances<String> distances : registered) distances.edgeRemoved(u, v);
+            }
+        }
+    }
+}
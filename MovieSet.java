@@ -0,0 +1,109 @@
+import java.util.*;
+
+/**
+ * Edge label holding the movies two actors share as interned title ids: a single int for the usual
+ * one-movie pair, otherwise a sorted int[] of exactly the right length
+ * It is a Set<String> of the titles, so callers of getLabel see no difference; equals and hashCode
+ * follow the Set contract, so it compares equal to a HashSet of the same titles
+ * Iteration is in id order, the order the titles were first interned
+ */
+public class MovieSet extends AbstractSet<String> {
+    private final TitleTable titles;
+    private int single = -1;	// the only id when size is 1
+    private int[] ids;		// sorted ids when size is more than 1
+    private int size;
+
+    /**
+     * Creates an empty label
+     *
+     * @param titles table the ids refer to, shared by all labels of a graph
+     */
+    public MovieSet(TitleTable titles) {
+        this.titles = titles;
+    }
+
+    /** The id of the i-th movie, in id order */
+    private int idAt(int i) {
+        return size == 1 ? single : ids[i];
+    }
+
+    /** Position of an id, or -(insertion point) - 1 if it is not here */
+    private int find(int id) {
+        if (size == 0) return -1;
+        if (size == 1) return single == id ? 0 : (id < single ? -1 : -2);
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(Object title) {
+        int id = titles.id(title);
+        return id >= 0 && find(id) >= 0;
+    }
+
+    public boolean add(String title) {
+        return addId(titles.intern(title));
+    }
+
+    /** Adds a movie by id */
+    public boolean addId(int id) {
+        int at = find(id);
+        if (at >= 0) return false;
+        at = -at - 1;
+        if (size == 0) single = id;
+        else {
+            int[] grown = new int[size + 1];
+            for (int i = 0, j = 0; i <= size; i++) grown[i] = i == at ? id : idAt(j++);
+            ids = grown;
+        }
+        size++;
+        return true;
+    }
+
+    public boolean remove(Object title) {
+        int id = titles.id(title);
+        if (id < 0) return false;
+        int at = find(id);
+        if (at < 0) return false;
+        removeAt(at);
+        return true;
+    }
+
+    private void removeAt(int at) {
+        if (size == 2) single = ids[1 - at];
+        if (size <= 2) ids = null;
+        else {
+            int[] shrunk = new int[size - 1];
+            System.arraycopy(ids, 0, shrunk, 0, at);
+            System.arraycopy(ids, at + 1, shrunk, at, size - at - 1);
+            ids = shrunk;
+        }
+        if (size == 1) single = -1;
+        size--;
+    }
+
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            int next = 0;
+            boolean removable;
+
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            public String next() {
+                if (next >= size) throw new NoSuchElementException();
+                removable = true;
+                return titles.title(idAt(next++));
+            }
+
+            public void remove() {
+                if (!removable) throw new IllegalStateException();
+                removable = false;
+                removeAt(--next);
+            }
+        };
+    }
+}
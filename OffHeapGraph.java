@@ -0,0 +1,554 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only co-star graph whose names, titles, movie lists and adjacency all live off the Java heap,
+ * in direct ByteBuffers, so the garbage collector never has to trace them however large the graph
+ * The heap holds only the handles: a few arrays of buffers and the counts
+ * It is built straight from the three input files without an intermediate on-heap graph:
+ * names are interned through a hash index kept off-heap, the casts are grouped by counting sort, and
+ * each actor's co-stars are worked out once from the casts of its movies and stored sorted
+ * Like BipartiteGraph, an edge's label is the set of titles two actors share, found by intersecting
+ * their sorted movie lists when asked for
+ * Storage is in chunks of up to 1 GB addressed by long indices, so it is not limited to 2 GB; the
+ * total is bounded by -XX:MaxDirectMemorySize, which defaults to the maximum heap size
+ */
+public class OffHeapGraph implements IndexedGraph<String, Set<String>> {
+    private final Strings names;			// vertex id -> name, indexed
+    private final Strings titles;			// titles as read, in file order
+    private final Memory movieTitle;		// ints: movie id -> index into titles + 1, 0 if it has none
+    private final Memory actorOffsets;		// longs: movies of actor a are actorMovies[actorOffsets[a]..actorOffsets[a+1]), sorted
+    private final Memory actorMovies;		// ints
+    private final Memory costarOffsets;	// longs: co-stars of actor a are costars[costarOffsets[a]..costarOffsets[a+1]), sorted
+    private final Memory costars;			// ints
+    private final int numVertices, numMovies;
+    private final long numLinks, numEdges;
+
+    /**
+     * Growable off-heap memory, in direct buffers of up to CHUNK bytes each; every chunk but the last is full,
+     * so an int or long at an aligned position never straddles two chunks
+     */
+    static final class Memory {
+        private static final int CHUNK_BITS = 30, CHUNK = 1 << CHUNK_BITS;
+        private ByteBuffer[] chunks = new ByteBuffer[0];
+        private long capacity;
+
+        Memory(long bytes) {
+            ensure(bytes);
+        }
+
+        /** Grows to at least the given number of bytes; new bytes are 0 */
+        void ensure(long bytes) {
+            while (capacity < bytes) {
+                int last = chunks.length - 1;
+                if (last >= 0 && chunks[last].capacity() < CHUNK) {
+                    // grow the last chunk by copying it into one at least twice as big
+                    long base = (long) last << CHUNK_BITS;
+                    int size = (int) Math.min(CHUNK, Math.max(2L * chunks[last].capacity(), bytes - base));
+                    ByteBuffer bigger = allocate(size);
+                    bigger.put(chunks[last].duplicate().clear());
+                    chunks[last] = bigger;
+                    capacity = base + size;
+                } else {
+                    chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                    chunks[last + 1] = allocate((int) Math.min(CHUNK, Math.max(bytes - capacity, 1 << 16)));
+                    capacity += chunks[last + 1].capacity();
+                }
+            }
+        }
+
+        private static ByteBuffer allocate(int bytes) {
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+
+        /** Bytes reserved */
+        long bytes() {
+            return capacity;
+        }
+
+        int getInt(long i) {
+            long b = i << 2;
+            return chunks[(int) (b >>> CHUNK_BITS)].getInt((int) b & (CHUNK - 1));
+        }
+
+        void setInt(long i, int value) {
+            long b = i << 2;
+            chunks[(int) (b >>> CHUNK_BITS)].putInt((int) b & (CHUNK - 1), value);
+        }
+
+        long getLong(long i) {
+            long b = i << 3;
+            return chunks[(int) (b >>> CHUNK_BITS)].getLong((int) b & (CHUNK - 1));
+        }
+
+        void setLong(long i, long value) {
+            long b = i << 3;
+            chunks[(int) (b >>> CHUNK_BITS)].putLong((int) b & (CHUNK - 1), value);
+        }
+
+        /** Copies bytes in from position b, across chunks if need be */
+        void put(long b, byte[] src) {
+            for (int done = 0; done < src.length; ) {
+                int offset = (int) (b + done) & (CHUNK - 1);
+                int n = Math.min(src.length - done, CHUNK - offset);
+                chunks[(int) ((b + done) >>> CHUNK_BITS)].put(offset, src, done, n);
+                done += n;
+            }
+        }
+
+        /** Copies bytes out from position b, across chunks if need be */
+        void get(long b, byte[] dst) {
+            for (int done = 0; done < dst.length; ) {
+                int offset = (int) (b + done) & (CHUNK - 1);
+                int n = Math.min(dst.length - done, CHUNK - offset);
+                chunks[(int) ((b + done) >>> CHUNK_BITS)].get(offset, dst, done, n);
+                done += n;
+            }
+        }
+    }
+
+    /** Growable list of ints off-heap */
+    static final class Ints {
+        final Memory memory = new Memory(1 << 16);
+        long size;
+
+        void add(int value) {
+            memory.ensure((size + 1) << 2);
+            memory.setInt(size++, value);
+        }
+
+        int get(long i) {
+            return memory.getInt(i);
+        }
+    }
+
+    /**
+     * Table of strings off-heap, stored as UTF-8 with an offset per string; optionally indexed by an
+     * open-addressing hash table of ids, so a string can be found without any object per entry
+     */
+    static final class Strings {
+        private final Memory bytes = new Memory(1 << 16);
+        private final Memory offsets = new Memory(1 << 12);	// longs: string i is bytes[offsets[i]..offsets[i+1])
+        private Memory slots;		// ints: id + 1 of the string hashed to each slot, 0 if empty; null if not indexed
+        private int mask;
+        private int size;
+
+        Strings(boolean indexed) {
+            if (indexed) {
+                mask = (1 << 10) - 1;
+                slots = new Memory(4L << 10);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        long bytes() {
+            return bytes.bytes() + offsets.bytes() + (slots == null ? 0 : slots.bytes());
+        }
+
+        /** Appends a string, even if it is already there, and returns its id */
+        int add(String s) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            long start = offsets.getLong(size);
+            bytes.ensure(start + utf8.length);
+            bytes.put(start, utf8);
+            offsets.ensure(8L * (size + 2));
+            offsets.setLong(size + 1, start + utf8.length);
+            if (slots != null) {
+                if (2L * (size + 1) > mask + 1) rehash();
+                insert(hash(utf8), size);
+            }
+            return size++;
+        }
+
+        /** The id of the string, added if it is not there yet */
+        int intern(String s) {
+            int id = find(s);
+            return id >= 0 ? id : add(s);
+        }
+
+        /** The id of the string, or -1 */
+        int find(String s) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            for (int slot = hash(utf8) & mask; ; slot = (slot + 1) & mask) {
+                int id = slots.getInt(slot) - 1;
+                if (id < 0) return -1;
+                if (Arrays.equals(utf8, utf8(id))) return id;
+            }
+        }
+
+        String get(int id) {
+            return new String(utf8(id), StandardCharsets.UTF_8);
+        }
+
+        private byte[] utf8(int id) {
+            long start = offsets.getLong(id);
+            byte[] utf8 = new byte[(int) (offsets.getLong(id + 1) - start)];
+            bytes.get(start, utf8);
+            return utf8;
+        }
+
+        private static int hash(byte[] utf8) {
+            int h = Arrays.hashCode(utf8);
+            return h ^ (h >>> 16);
+        }
+
+        private void insert(int hash, int id) {
+            int slot = hash & mask;
+            while (slots.getInt(slot) != 0) slot = (slot + 1) & mask;
+            slots.setInt(slot, id + 1);
+        }
+
+        private void rehash() {
+            mask = mask * 2 + 1;
+            slots = new Memory(4L * (mask + 1));
+            for (int id = 0; id < size; id++) insert(hash(utf8(id)), id);
+        }
+    }
+
+    /**
+     * Builds the graph from the input files
+     *
+     * @param actorFile actors file, "id|name"
+     * @param movieFile movies file, "id|title"
+     * @param castFile movie-actors file, "movie id|actor id"
+     */
+    public OffHeapGraph(String actorFile, String movieFile, String castFile) throws IOException {
+        // actors: each ID maps to a vertex, and actors with the same name share one
+        Strings actorKeys = new Strings(true), vertexNames = new Strings(true);
+        Memory actorVertex = new Memory(1 << 12);
+        PipeFileParser.parse(actorFile, (key, name) -> {
+            int k = actorKeys.intern(key);
+            actorVertex.ensure(4L * (k + 1));
+            actorVertex.setInt(k, vertexNames.intern(name));
+        });
+        names = vertexNames;
+        numVertices = names.size();
+
+        // movies, and then the cast links to known actors, as (movie ID index, vertex) pairs
+        Strings movieKeys = new Strings(true), titleTable = new Strings(false);
+        Memory keyTitle = new Memory(1 << 12);	// movie ID index -> title + 1
+        PipeFileParser.parse(movieFile, (key, title) -> {
+            int m = movieKeys.intern(key);
+            keyTitle.ensure(4L * (m + 1));
+            keyTitle.setInt(m, titleTable.add(title) + 1);
+        });
+        titles = titleTable;
+        Ints pairMovies = new Ints(), pairActors = new Ints();
+        PipeFileParser.parse(castFile, (movieKey, actorKey) -> {
+            int a = actorKeys.find(actorKey);
+            if (a < 0) return;	// cast members without an actor entry have no vertex
+            pairMovies.add(movieKeys.intern(movieKey));
+            pairActors.add(actorVertex.getInt(a));
+        });
+        int keys = movieKeys.size();
+        keyTitle.ensure(4L * keys);
+
+        // group the pairs by movie with a counting sort
+        Memory starts = new Memory(8L * (keys + 1));
+        for (long i = 0; i < pairMovies.size; i++) {
+            int m = pairMovies.get(i);
+            starts.setLong(m + 1, starts.getLong(m + 1) + 1);
+        }
+        for (int m = 0; m < keys; m++) starts.setLong(m + 1, starts.getLong(m + 1) + starts.getLong(m));
+        Memory next = new Memory(8L * keys), grouped = new Memory(4L * pairMovies.size);
+        for (int m = 0; m < keys; m++) next.setLong(m, starts.getLong(m));
+        for (long i = 0; i < pairMovies.size; i++) {
+            int m = pairMovies.get(i);
+            long slot = next.getLong(m);
+            grouped.setInt(slot, pairActors.get(i));
+            next.setLong(m, slot + 1);
+        }
+
+        // casts as sorted vertex ids without repeats; movies without a known actor get no id
+        Ints castActors = new Ints();
+        Memory castOffsets = new Memory(8L * (keys + 1));
+        movieTitle = new Memory(4L * Math.max(1, keys));
+        Memory actorCounts = new Memory(8L * (numVertices + 1));
+        int movies = 0;
+        int[] cast = new int[16];
+        for (int m = 0; m < keys; m++) {
+            int size = (int) (starts.getLong(m + 1) - starts.getLong(m));
+            if (size == 0) continue;
+            if (cast.length < size) cast = new int[Math.max(size, cast.length * 2)];
+            for (int i = 0; i < size; i++) cast[i] = grouped.getInt(starts.getLong(m) + i);
+            Arrays.sort(cast, 0, size);
+            for (int i = 0; i < size; i++) {
+                if (i > 0 && cast[i] == cast[i - 1]) continue;
+                castActors.add(cast[i]);
+                actorCounts.setLong(cast[i] + 1, actorCounts.getLong(cast[i] + 1) + 1);
+            }
+            movieTitle.setInt(movies, keyTitle.getInt(m));
+            castOffsets.setLong(++movies, castActors.size);
+        }
+        numMovies = movies;
+        numLinks = castActors.size;
+
+        // each actor's movies, in increasing order since the movies are visited in order
+        actorOffsets = actorCounts;
+        for (int a = 0; a < numVertices; a++) actorOffsets.setLong(a + 1, actorOffsets.getLong(a + 1) + actorOffsets.getLong(a));
+        actorMovies = new Memory(4L * Math.max(1, numLinks));
+        next = new Memory(8L * Math.max(1, numVertices));
+        for (int a = 0; a < numVertices; a++) next.setLong(a, actorOffsets.getLong(a));
+        for (int m = 0; m < numMovies; m++) {
+            for (long i = castOffsets.getLong(m); i < castOffsets.getLong(m + 1); i++) {
+                int a = castActors.get(i);
+                long slot = next.getLong(a);
+                actorMovies.setInt(slot, m);
+                next.setLong(a, slot + 1);
+            }
+        }
+
+        // co-stars: the union of the casts of an actor's movies, marked so each is listed once
+        Ints rows = new Ints();
+        costarOffsets = new Memory(8L * (numVertices + 1));
+        Memory mark = new Memory(4L * Math.max(1, numVertices));	// a + 1 once listed for actor a
+        int[] row = new int[16];
+        for (int a = 0; a < numVertices; a++) {
+            int size = 0;
+            for (long i = actorOffsets.getLong(a); i < actorOffsets.getLong(a + 1); i++) {
+                int m = actorMovies.getInt(i);
+                for (long j = castOffsets.getLong(m); j < castOffsets.getLong(m + 1); j++) {
+                    int b = castActors.get(j);
+                    if (b == a || mark.getInt(b) == a + 1) continue;
+                    mark.setInt(b, a + 1);
+                    if (size == row.length) row = Arrays.copyOf(row, size * 2);
+                    row[size++] = b;
+                }
+            }
+            Arrays.sort(row, 0, size);
+            for (int i = 0; i < size; i++) rows.add(row[i]);
+            costarOffsets.setLong(a + 1, rows.size);
+        }
+        costars = rows.memory;
+        numEdges = rows.size;
+    }
+
+    /** How many movies have at least one actor in the graph */
+    public int numMovies() {
+        return numMovies;
+    }
+
+    /** The title of the movie with the given id */
+    public String movieAt(int movie) {
+        int title = movieTitle.getInt(movie) - 1;
+        return title < 0 ? null : titles.get(title);
+    }
+
+    /** Total cast size: the number of actor-movie links */
+    public long numLinks() {
+        return numLinks;
+    }
+
+    /** Bytes of direct memory holding the graph */
+    public long offHeapBytes() {
+        return names.bytes() + titles.bytes() + movieTitle.bytes() + actorOffsets.bytes() + actorMovies.bytes()
+                + costarOffsets.bytes() + costars.bytes();
+    }
+
+    /** Titles of the movies both actors are in, or null if there are none */
+    private Set<String> shared(int a, int b) {
+        Set<String> label = null;
+        long i = actorOffsets.getLong(a), iEnd = actorOffsets.getLong(a + 1);
+        long j = actorOffsets.getLong(b), jEnd = actorOffsets.getLong(b + 1);
+        while (i < iEnd && j < jEnd) {
+            int x = actorMovies.getInt(i), y = actorMovies.getInt(j);
+            if (x < y) i++;
+            else if (x > y) j++;
+            else {
+                if (label == null) label = new HashSet<>();
+                label.add(movieAt(x));
+                i++;
+                j++;
+            }
+        }
+        return label;
+    }
+
+    private int id(String v) {
+        int id = vertexId(v);
+        if (id < 0) throw new IllegalArgumentException("Not a vertex: " + v);
+        return id;
+    }
+
+    public int vertexIdBound() {
+        return numVertices;
+    }
+
+    public int vertexId(String v) {
+        return v == null ? -1 : names.find(v);
+    }
+
+    public String vertexAt(int id) {
+        return names.get(id);
+    }
+
+    public int outDegreeOf(int id) {
+        return (int) (costarOffsets.getLong(id + 1) - costarOffsets.getLong(id));
+    }
+
+    public int outNeighborAt(int id, int k) {
+        return costars.getInt(costarOffsets.getLong(id) + k);
+    }
+
+    public int inDegreeOf(int id) {
+        return outDegreeOf(id);
+    }
+
+    public int inNeighborAt(int id, int k) {
+        return outNeighborAt(id, k);
+    }
+
+    public void forEachOutNeighbor(int id, IntConsumer action) {
+        for (long i = costarOffsets.getLong(id), end = costarOffsets.getLong(id + 1); i < end; i++) {
+            action.accept(costars.getInt(i));
+        }
+    }
+
+    public void forEachInNeighbor(int id, IntConsumer action) {
+        forEachOutNeighbor(id, action);
+    }
+
+    public int numVertices() {
+        return numVertices;
+    }
+
+    public int numEdges() {
+        return (int) Math.min(Integer.MAX_VALUE, numEdges);
+    }
+
+    public Iterable<String> vertices() {
+        return new AbstractList<String>() {
+            public String get(int i) {
+                return names.get(i);
+            }
+
+            public int size() {
+                return numVertices;
+            }
+        };
+    }
+
+    public boolean hasVertex(String v) {
+        return vertexId(v) >= 0;
+    }
+
+    public int outDegree(String v) {
+        return outDegreeOf(id(v));
+    }
+
+    public int inDegree(String v) {
+        return outDegreeOf(id(v));
+    }
+
+    public Iterable<String> outNeighbors(String v) {
+        int id = id(v);
+        long start = costarOffsets.getLong(id);
+        int degree = outDegreeOf(id);
+        return new AbstractList<String>() {
+            public String get(int i) {
+                return names.get(costars.getInt(start + i));
+            }
+
+            public int size() {
+                return degree;
+            }
+        };
+    }
+
+    public Iterable<String> inNeighbors(String v) {
+        return outNeighbors(v);
+    }
+
+    public boolean hasEdge(String u, String v) {
+        int a = vertexId(u), b = vertexId(v);
+        if (a < 0 || b < 0) return false;
+        // binary search of the sorted co-star row
+        long low = costarOffsets.getLong(a), high = costarOffsets.getLong(a + 1) - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int c = costars.getInt(mid);
+            if (c < b) low = mid + 1;
+            else if (c > b) high = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    public Set<String> getLabel(String u, String v) {
+        int a = vertexId(u), b = vertexId(v);
+        if (a < 0 || b < 0 || a == b) return null;
+        return shared(a, b);
+    }
+
+    public void insertVertex(String v) {
+        throw new UnsupportedOperationException("OffHeapGraph is read-only");
+    }
+
+    public void insertDirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("OffHeapGraph is read-only");
+    }
+
+    public void insertUndirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("OffHeapGraph is read-only");
+    }
+
+    public void removeVertex(String v) {
+        throw new UnsupportedOperationException("OffHeapGraph is read-only");
+    }
+
+    public void removeDirected(String u, String v) {
+        throw new UnsupportedOperationException("OffHeapGraph is read-only");
+    }
+
+    public void removeUndirected(String u, String v) {
+        throw new UnsupportedOperationException("OffHeapGraph is read-only");
+    }
+
+    /**
+     * Loads the input files off-heap and reports heap, GC and direct memory use while loading and
+     * while searching: OffHeapGraph [input directory] [searches]
+     */
+    public static void main(String[] args) throws IOException {
+        String dir = args.length > 0 ? args[0] : "inputs";
+        int searches = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long start = System.nanoTime();
+        OffHeapGraph graph = new OffHeapGraph(dir + "/actors.txt", dir + "/movies.txt", dir + "/movie-actors.txt");
+        System.out.printf("%d actors, %d movies, %d directed edges, %.1f MB off-heap, loaded in %.0f ms%n",
+                graph.numVertices(), graph.numMovies(), graph.numEdges, graph.offHeapBytes() / 1e6,
+                (System.nanoTime() - start) / 1e6);
+        report("after loading");
+
+        BreadthFirstSearch<String, Set<String>> search = BreadthFirstSearch.forGraph(graph);
+        Random random = new Random(1);
+        long reached = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < searches && graph.numVertices() > 0; i++) {
+            reached += search.run(random.nextInt(graph.numVertices())).numVertices();
+        }
+        System.out.printf("%d searches, %.1f ms each, %d vertices reached%n", searches,
+                (System.nanoTime() - start) / 1e6 / Math.max(1, searches), reached);
+        report("after searching");
+    }
+
+    /** Prints the heap in use after a full collection, and the collections so far */
+    private static void report(String when) {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long collections = 0, millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        System.out.printf("%s: %.1f MB heap in use, %d collections, %d ms in GC%n", when,
+                (runtime.totalMemory() - runtime.freeMemory()) / 1e6, collections, millis);
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Streaming parser for the "id|value" input files
+ * Reads the file in large chunks through a FileChannel, finds line ends and the '|' by scanning
+ * bytes, and decodes only the two fields, as UTF-8. A line is accepted exactly when
+ * line.split("\\|") would give two pieces: one '|' once any trailing '|'s are dropped
+ * Bad lines are reported on System.err with their line number, counting from 0, as before
+ * In parallel mode the file is cut into chunks at line ends that are parsed on a thread pool; the
+ * fields still reach the handler in file order, on the calling thread
+ */
+public class PipeFileParser {
+    private static final int BUFFER = 1 << 20;		// bytes read at a time
+    private static final int PARALLEL_CHUNK = 8 << 20;	// bytes per parallel task
+
+    /** Receives the two fields of each good line */
+    public interface LineHandler {
+        void accept(String key, String value);
+    }
+
+    /**
+     * Parses a file sequentially
+     *
+     * @param fileName file to read
+     * @param handler called with the fields of each good line, in file order
+     */
+    public static void parse(String fileName, LineHandler handler) throws IOException {
+        try (FileChannel channel = new FileInputStream(fileName).getChannel()) {
+            Lines lines = new Lines(handler);
+            byte[] buf = new byte[BUFFER];
+            int filled = 0;
+            boolean eof = false;
+            while (!eof) {
+                if (filled == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);	// a line longer than the buffer
+                int read = channel.read(ByteBuffer.wrap(buf, filled, buf.length - filled));
+                if (read < 0) eof = true;
+                else filled += read;
+                int consumed = lines.parse(buf, 0, filled, eof);
+                System.arraycopy(buf, consumed, buf, 0, filled - consumed);	// keep the partial last line
+                filled -= consumed;
+            }
+        }
+    }
+
+    /**
+     * Parses a file, optionally decoding chunks of it in parallel
+     *
+     * @param fileName file to read
+     * @param handler called with the fields of each good line, in file order
+     * @param parallel whether to parse chunks on all cores
+     */
+    public static void parse(String fileName, LineHandler handler, boolean parallel) throws IOException {
+        if (!parallel) {
+            parse(fileName, handler);
+            return;
+        }
+        try (FileChannel channel = new FileInputStream(fileName).getChannel()) {
+            List<long[]> ranges = chunks(channel);
+            ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            try {
+                List<Future<Lines>> results = new ArrayList<>();
+                for (long[] range : ranges) {
+                    results.add(pool.submit(() -> {
+                        byte[] buf = new byte[(int) (range[1] - range[0])];
+                        ByteBuffer target = ByteBuffer.wrap(buf);
+                        while (target.hasRemaining()) {
+                            if (channel.read(target, range[0] + target.position()) < 0) break;
+                        }
+                        Lines lines = new Lines(null);	// collects the fields, to hand over in order
+                        lines.parse(buf, 0, target.position(), true);
+                        return lines;
+                    }));
+                }
+                int lineNum = 0;
+                for (Future<Lines> result : results) {
+                    Lines lines = result.get();
+                    for (int i = 0; i < lines.fields.size(); i += 2) {
+                        handler.accept(lines.fields.get(i), lines.fields.get(i + 1));
+                    }
+                    lines.reportErrors(lineNum);
+                    lineNum += lines.lineNum;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while parsing " + fileName);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                throw new IllegalStateException("Parse of " + fileName + " failed", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /** Byte ranges of about PARALLEL_CHUNK bytes that start and end at line boundaries */
+    private static List<long[]> chunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> ranges = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + PARALLEL_CHUNK);
+            // move the cut past the next '\n'
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                int newline = -1;
+                for (int i = 0; i < read && newline < 0; i++) {
+                    if (probe.get(i) == '\n') newline = i;
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            ranges.add(new long[]{start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    /** Line splitting state; with a handler bad lines are printed right away, otherwise fields and bad lines are collected */
+    private static class Lines {
+        final LineHandler handler;		// null to collect the fields instead
+        final List<String> fields = new ArrayList<>();		// collected key, value, key, value, ...
+        final List<String> errors = new ArrayList<>();		// collected bad lines, with their local line numbers
+        final List<Integer> errorLines = new ArrayList<>();
+        int lineNum;
+
+        Lines(LineHandler handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * Handles every complete line in buf[start, end); at the end of input the last line need not end in a newline
+         *
+         * @return index just past the last line handled
+         */
+        int parse(byte[] buf, int start, int end, boolean eof) {
+            int lineStart = start;
+            for (int i = start; i < end; i++) {
+                byte b = buf[i];
+                if (b != '\n' && b != '\r') continue;
+                int next = i + 1;
+                if (b == '\r') {
+                    if (next == end && !eof) return lineStart;	// might be half of a "\r\n"
+                    if (next < end && buf[next] == '\n') next++;
+                }
+                line(buf, lineStart, i);
+                lineStart = next;
+                i = next - 1;
+            }
+            if (eof && lineStart < end) {
+                line(buf, lineStart, end);
+                lineStart = end;
+            }
+            return lineStart;
+        }
+
+        /** Splits one line, buf[start, end) without its terminator */
+        private void line(byte[] buf, int start, int end) {
+            int trimmed = end;
+            while (trimmed > start && buf[trimmed - 1] == '|') trimmed--;	// split drops trailing empty pieces
+            int bar = -1;
+            boolean good = true;
+            for (int i = start; i < trimmed; i++) {
+                if (buf[i] == '|') {
+                    if (bar >= 0) good = false;
+                    bar = i;
+                }
+            }
+            if (good && bar >= 0) {
+                String key = new String(buf, start, bar - start, StandardCharsets.UTF_8);
+                String value = new String(buf, bar + 1, trimmed - bar - 1, StandardCharsets.UTF_8);
+                if (handler != null) handler.accept(key, value);
+                else {
+                    fields.add(key);
+                    fields.add(value);
+                }
+            } else if (handler != null) {
+                System.err.println("bad separation in line " + lineNum + ":"
+                        + new String(buf, start, end - start, StandardCharsets.UTF_8));
+            } else {
+                errors.add(new String(buf, start, end - start, StandardCharsets.UTF_8));
+                errorLines.add(lineNum);
+            }
+            lineNum++;
+        }
+
+        /** Prints the collected bad lines, numbering lines from the given first line number */
+        void reportErrors(int firstLine) {
+            for (int i = 0; i < errors.size(); i++) {
+                System.err.println("bad separation in line " + (firstLine + errorLines.get(i)) + ":" + errors.get(i));
+            }
+        }
+    }
+}
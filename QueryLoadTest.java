@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Load test for QueryServer: starts a server in this process over the input files, then for rising
+ * numbers of concurrent clients sends a mix of path, Bacon number, reachability and degree queries
+ * between random actors for a fixed time, and reports throughput and latency percentiles
+ * /top runs a whole pruned top-k search per request, orders of magnitude more than the rest, so it is
+ * measured on its own afterwards instead of being hidden in the mix's percentiles
+ *
+ * Usage: QueryLoadTest [seconds per level] [max clients] [server threads]
+ */
+public class QueryLoadTest {
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int maxClients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors() * 2;
+        IndexedGraph<String, Set<String>> graph = BaconGame.csrGraph("inputs/actors.txt", "inputs/movies.txt",
+                "inputs/movie-actors.txt");
+        QueryServer server = new QueryServer(graph);
+        int port = server.start(0, threads);
+        List<String> actors = new ArrayList<>();
+        for (String actor : graph.vertices()) actors.add(actor);
+        String[] mix = {"/path?from=%s&to=%s", "/number?actor=%s&center=%s", "/reachable?from=%s&to=%s",
+                "/degree?actor=%s&unused=%s"};
+        String[] top = {"/top?center=%s&k=10&unused=%s"};
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newCachedThreadPool()).build();
+        System.out.println(graph.numVertices() + " actors, " + threads + " server threads, " + seconds + " s per level");
+        try {
+            System.out.println("path, number, reachable and degree mix");
+            header();
+            for (int clients = 1; clients <= maxClients; clients *= 2) {
+                level(client, port, actors, mix, clients, seconds);
+            }
+            System.out.println("top");
+            header();
+            for (int clients = 1; clients <= Math.min(maxClients, threads); clients *= 2) {
+                level(client, port, actors, top, clients, seconds);
+            }
+        } finally {
+            server.stop();
+            System.exit(0);	// the client's threads do not stop on their own
+        }
+    }
+
+    /**
+     * Sends queries from a number of clients for a fixed time and prints one row of results
+     *
+     * @param queries query formats, each filled in with two random actors
+     */
+    private static void level(HttpClient client, int port, List<String> actors, String[] queries, int clients,
+                              int seconds) throws Exception {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        ExecutorService workers = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            long seed = c;
+            results.add(workers.submit(() -> {
+                Random random = new Random(seed);
+                long[] latencies = new long[1024];
+                int count = 0, errors = 0;
+                while (System.nanoTime() < end) {
+                    String query = String.format(queries[random.nextInt(queries.length)],
+                            encode(actors.get(random.nextInt(actors.size()))),
+                            encode(actors.get(random.nextInt(actors.size()))));
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + query)).build();
+                    long start = System.nanoTime();
+                    try {
+                        if (client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() != 200) errors++;
+                    } catch (IOException e) {
+                        errors++;
+                    }
+                    if (count == latencies.length - 1) latencies = Arrays.copyOf(latencies, count * 2);
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                long[] result = Arrays.copyOf(latencies, count + 1);
+                result[count] = errors;	// the errors ride along in the last slot
+                return result;
+            }));
+        }
+        long[] all = new long[0];
+        long errors = 0;
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            errors += latencies[latencies.length - 1];
+            int old = all.length;
+            all = Arrays.copyOf(all, old + latencies.length - 1);
+            System.arraycopy(latencies, 0, all, old, latencies.length - 1);
+        }
+        workers.shutdown();
+        Arrays.sort(all);
+        System.out.printf("%8d %10d %12.0f %10.3f %10.3f %10.3f %8d%n", clients, all.length,
+                all.length / (double) seconds, percentile(all, 0.50), percentile(all, 0.99),
+                all.length == 0 ? 0 : all[all.length - 1] / 1e6, errors);
+    }
+
+    private static void header() {
+        System.out.printf("%8s %10s %12s %10s %10s %10s %8s%n", "clients", "requests", "req/s", "p50 ms", "p99 ms",
+                "max ms", "errors");
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    /** Latency at a fraction of the sorted latencies, in milliseconds */
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)] / 1e6;
+    }
+}
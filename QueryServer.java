@@ -0,0 +1,194 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP server answering game queries for many users at once over one loaded co-star graph
+ * The graph and the component index are built once and never change, so request threads share them
+ * without locking; each thread keeps its own BFS buffers in a ThreadLocal, allocated on its first query
+ * Rankings are not cached: /top runs the pruned top-k search for each request, so no request can make
+ * the server keep per-center state
+ * Answers are plain text, one item per line. Endpoints, all GET:
+ *   /path?from=A&to=B        a shortest path, one "X was in [movies] with Y" line per step
+ *   /number?actor=A[&center=C] Bacon number of A, "infinity" if not connected
+ *   /reachable?from=A&to=B   true or false
+ *   /degree?actor=A           number of co-stars
+ *   /top?k=10[&center=C]     k actors with the lowest average separation, best first
+ * center defaults to Kevin Bacon. Unknown actors get 404, missing or bad parameters 400
+ * Each request is timed as stage server/<endpoint>, or server/unknown for any other path, and counted
+ * by response status as server/status/<code>
+ */
+public class QueryServer {
+    private static final String DEFAULT_CENTER = "Kevin Bacon";
+    private static final Set<String> ENDPOINTS = Set.of("/path", "/number", "/reachable", "/degree", "/top");
+
+    private final IndexedGraph<String, Set<String>> graph;
+    private final ComponentIndex<String> components;
+    private final ThreadLocal<BidirectionalSearch<String, Set<String>>> pathSearches;	// per-thread buffers
+    private HttpServer server;
+    private ExecutorService pool;
+
+    /**
+     * @param graph immutable co-star graph shared by all requests
+     */
+    public QueryServer(IndexedGraph<String, Set<String>> graph) {
+        this.graph = graph;
+        components = new ComponentIndex<>(graph);
+        pathSearches = ThreadLocal.withInitial(() -> new BidirectionalSearch<>(graph));
+    }
+
+    /**
+     * Starts serving on a fixed pool of request threads
+     *
+     * @param port port to listen on, 0 for any free one
+     * @param threads number of request threads
+     * @return the port listened on
+     */
+    public int start(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        pool = Executors.newFixedThreadPool(threads);
+        server.setExecutor(pool);
+        server.createContext("/", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /** Stops accepting requests and shuts down the request threads */
+    public void stop() {
+        server.stop(0);
+        pool.shutdownNow();
+    }
+
+    /** Bad request, answered with the given status */
+    private static class QueryException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        QueryException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = Metrics.start();
+        String path = exchange.getRequestURI().getPath();
+        int status = 200;
+        String body;
+        try {
+            Map<String, String> params = params(exchange.getRequestURI().getRawQuery());
+            if (!exchange.getRequestMethod().equals("GET")) throw new QueryException(405, "GET only");
+            body = answer(path, params);
+        } catch (QueryException e) {
+            status = e.status;
+            body = e.getMessage() + "\n";
+        } catch (RuntimeException e) {
+            status = 500;
+            body = "Internal error: " + e + "\n";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        // a fixed set of metric names, whatever paths clients send; .items counts requests
+        Metrics.stage("server" + (ENDPOINTS.contains(path) ? path : "/unknown"), start, 1);
+        Metrics.getRegistry().count("server/status/" + status, 1);
+    }
+
+    /**
+     * Answers one query
+     *
+     * @param endpoint request path, e.g. "/path"
+     * @param params decoded query parameters
+     * @return the response body
+     */
+    public String answer(String endpoint, Map<String, String> params) {
+        switch (endpoint) {
+            case "/path": {
+                ShortestPath<String, Set<String>> path = pathSearches.get().find(actor(params, "from"), actor(params, "to"));
+                if (path == null) return "No path found\n";
+                StringBuilder body = new StringBuilder();
+                List<String> list = path.getVertices();
+                for (int i = 0; i + 1 < list.size(); i++) {
+                    body.append(list.get(i)).append(" was in ").append(path.getLabels().get(i))
+                            .append(" with ").append(list.get(i + 1)).append('\n');
+                }
+                return body.toString();
+            }
+            case "/number": {
+                String center = params.containsKey("center") ? actor(params, "center") : center();
+                ShortestPath<String, Set<String>> path = pathSearches.get().find(actor(params, "actor"), center);
+                return (path == null ? "infinity" : String.valueOf(path.length())) + "\n";
+            }
+            case "/reachable":
+                return components.connected(actor(params, "from"), actor(params, "to")) + "\n";
+            case "/degree":
+                return graph.outDegree(actor(params, "actor")) + "\n";
+            case "/top": {
+                String center = params.containsKey("center") ? actor(params, "center") : center();
+                int k;
+                try {
+                    k = Integer.parseInt(params.getOrDefault("k", "10"));
+                } catch (NumberFormatException e) {
+                    throw new QueryException(400, "k must be a number");
+                }
+                StringBuilder body = new StringBuilder();
+                for (int id : ClosenessCentrality.topK(graph, graph.vertexId(center), k)) {
+                    body.append(graph.vertexAt(id)).append('\n');
+                }
+                return body.toString();
+            }
+            default:
+                throw new QueryException(404, "Unknown endpoint " + endpoint);
+        }
+    }
+
+    private String center() {
+        if (!graph.hasVertex(DEFAULT_CENTER)) throw new QueryException(400, "center is required");
+        return DEFAULT_CENTER;
+    }
+
+    /** A parameter naming an actor in the graph */
+    private String actor(Map<String, String> params, String name) {
+        String actor = params.get(name);
+        if (actor == null) throw new QueryException(400, "Missing parameter " + name);
+        if (!graph.hasVertex(actor)) throw new QueryException(404, "Not an actor: " + actor);
+        return actor;
+    }
+
+    /** Decodes a raw query string */
+    private static Map<String, String> params(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) continue;
+            try {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new QueryException(400, "Bad query string");
+            }
+        }
+        return params;
+    }
+
+    /** Serves the input files: QueryServer [port] [threads] */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 2;
+        QueryServer server = new QueryServer(BaconGame.csrGraph("inputs/actors.txt", "inputs/movies.txt",
+                "inputs/movie-actors.txt"));
+        System.out.println("listening on http://localhost:" + server.start(port, threads) + "/");
+    }
+}
@@ -0,0 +1,34 @@
+import java.util.*;
+
+/**
+ * A shortest path between two vertices, with the label of each edge along it
+ *
+ * @param <V>	the type of vertices
+ * @param <E>	the type of edge labels
+ */
+public class ShortestPath<V,E> {
+    private final List<V> vertices;	// from the start to the end of the path
+    private final List<E> labels;		// labels.get(i) is on the edge from vertices.get(i) to vertices.get(i+1)
+
+    public ShortestPath(List<V> vertices, List<E> labels) {
+        this.vertices = vertices;
+        this.labels = labels;
+    }
+
+    public List<V> getVertices() {
+        return vertices;
+    }
+
+    public List<E> getLabels() {
+        return labels;
+    }
+
+    /** Number of edges on the path */
+    public int length() {
+        return labels.size();
+    }
+
+    public String toString() {
+        return vertices + " via " + labels;
+    }
+}
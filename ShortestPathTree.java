@@ -0,0 +1,138 @@
+import java.util.*;
+
+/**
+ * Read-only view of the shortest-path tree of the latest run of a BreadthFirstSearch
+ * Answers the questions the game asks of a BFS tree (path back to the source, separation,
+ * which vertices are missing, how many vertices hang off a vertex) straight from the search arrays
+ * A view is invalidated by the next run of the search that produced it
+ *
+ * @param <V>	the type of vertices
+ * @param <E>	the type of edge labels
+ */
+public class ShortestPathTree<V,E> {
+    private final BreadthFirstSearch<V,E> search;
+    private final int generation;		// run of the search this view belongs to
+
+    ShortestPathTree(BreadthFirstSearch<V,E> search) {
+        this.search = search;
+        this.generation = search.generation;
+    }
+
+    private BreadthFirstSearch<V,E> search() {
+        if (search.generation != generation) {
+            throw new IllegalStateException("BFS has been run again since this tree was returned");
+        }
+        return search;
+    }
+
+    /** The id of v if it was reached, otherwise -1 */
+    private int reachedId(V v) {
+        BreadthFirstSearch<V,E> s = search();
+        int id = s.graph.vertexId(v);
+        return id >= 0 && s.isVisited(id) ? id : -1;
+    }
+
+    /** The root of the tree */
+    public V getSource() {
+        BreadthFirstSearch<V,E> s = search();
+        return s.graph.vertexAt(s.source);
+    }
+
+    /** How many vertices are in the tree, including the source */
+    public int numVertices() {
+        return search().reached;
+    }
+
+    /** Whether v is in the tree, i.e. has a path from the source */
+    public boolean hasVertex(V v) {
+        return reachedId(v) >= 0;
+    }
+
+    /** The vertices in the tree, in BFS order */
+    public Iterable<V> vertices() {
+        BreadthFirstSearch<V,E> s = search();
+        return new AbstractList<V>() {
+            public V get(int i) {
+                return search().graph.vertexAt(s.queue[i]);
+            }
+
+            public int size() {
+                return s.reached;
+            }
+        };
+    }
+
+    /** Number of edges on the shortest path from the source to v, or -1 if there is none */
+    public int distance(V v) {
+        int id = reachedId(v);
+        return id < 0 ? -1 : search.dist[id];
+    }
+
+    /** The vertex v was discovered from, or null for the source or a vertex not in the tree */
+    public V parent(V v) {
+        int id = reachedId(v);
+        return id < 0 || search.parent[id] < 0 ? null : search.graph.vertexAt(search.parent[id]);
+    }
+
+    /** How many vertices were discovered from v */
+    public int numChildren(V v) {
+        int id = reachedId(v);
+        if (id < 0) return 0;
+        int children = 0;
+        for (int i = 0; i < search.reached; i++) {
+            if (search.parent[search.queue[i]] == id) children++;
+        }
+        return children;
+    }
+
+    /**
+     * The shortest path from the source to v
+     *
+     * @param v end vertex
+     * @return vertices from the source to v, or an empty list if v is not in the tree
+     */
+    public List<V> getPath(V v) {
+        int id = reachedId(v);
+        if (id < 0) return new ArrayList<V>();
+        List<V> path = new ArrayList<V>(search.dist[id] + 1);
+        for (int u = id; u >= 0; u = search.parent[u]) {
+            path.add(search.graph.vertexAt(u));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** How many vertices are at each distance from the source, from 0 up to the eccentricity */
+    public int[] distanceHistogram() {
+        BreadthFirstSearch<V,E> s = search();
+        return Arrays.copyOf(s.levelCounts, s.depth + 1);
+    }
+
+    /** Greatest distance from the source to a vertex in the tree */
+    public int eccentricity() {
+        return search().depth;
+    }
+
+    /** Sum of the distances from the source to every vertex in the tree */
+    public long totalSeparation() {
+        BreadthFirstSearch<V,E> s = search();
+        long total = 0;
+        for (int d = 1; d <= s.depth; d++) total += (long) d * s.levelCounts[d];
+        return total;
+    }
+
+    /** Average distance from the source over the vertices in the tree, the source included */
+    public double averageSeparation() {
+        return (double) totalSeparation() / numVertices();
+    }
+
+    /** The vertices of the graph that are not in the tree */
+    public Set<V> missingVertices() {
+        BreadthFirstSearch<V,E> s = search();
+        Set<V> missing = new HashSet<V>();
+        for (int id = 0; id < s.graph.vertexIdBound(); id++) {
+            if (!s.isVisited(id)) missing.add(s.graph.vertexAt(id));
+        }
+        return missing;
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory MetricsRegistry: per stage the number of runs, total and longest time; running counts;
+ * and the last value of each gauge, printable with report
+ */
+public class StatsRegistry implements MetricsRegistry {
+    /** Runs, total and longest time of one stage */
+    private static class Timer {
+        final LongAdder runs = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final Map<String, Long> gauges = new ConcurrentHashMap<>();
+
+    public void timer(String stage, long nanos) {
+        Timer timer = timers.computeIfAbsent(stage, key -> new Timer());
+        timer.runs.increment();
+        timer.totalNanos.add(nanos);
+        timer.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void count(String name, long amount) {
+        counts.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    public void gauge(String name, long value) {
+        gauges.put(name, value);
+    }
+
+    /** Total of a count, 0 if it was never added to */
+    public long getCount(String name) {
+        LongAdder count = counts.get(name);
+        return count == null ? 0 : count.sum();
+    }
+
+    /** Everything recorded so far, one line per stage, count and gauge, in name order */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(timers).entrySet()) {
+            Timer timer = entry.getValue();
+            long runs = timer.runs.sum();
+            report.append(String.format("%-20s %8d runs %12.3f ms avg %12.3f ms max%n", entry.getKey(), runs,
+                    timer.totalNanos.sum() / 1e6 / runs, timer.maxNanos.get() / 1e6));
+        }
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counts).entrySet()) {
+            report.append(String.format("%-20s %12d%n", entry.getKey(), entry.getValue().sum()));
+        }
+        for (Map.Entry<String, Long> entry : new TreeMap<>(gauges).entrySet()) {
+            report.append(String.format("%-20s %12d%n", entry.getKey(), entry.getValue()));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generates synthetic movie data whose co-star graph is scale-free, for benchmarking without the
+ * real input files
+ * Cast sizes follow a Pareto distribution, and each cast member is, with probability PREFERENTIAL,
+ * someone picked in proportion to the movies they are already in, else anyone; that preferential
+ * attachment gives a power-law degree distribution with a few very connected hubs, like the real data
+ * Actor 1 is "Kevin Bacon", so the game works on the generated data too
+ */
+public class SyntheticGraphs {
+    private static final double PREFERENTIAL = 0.8;	// chance a cast member is picked by popularity
+    private static final double MOVIES_PER_ACTOR = 4.0 / 3;
+
+    private final Map<String, String> actors = new HashMap<>();		// actor ID -> name
+    private final Map<String, String> movies = new HashMap<>();		// movie ID -> title
+    private final Map<String, Set<String>> movieActors = new HashMap<>();	// movie ID -> actor IDs
+
+    /**
+     * Generates the data
+     *
+     * @param numActors how many actors, the vertex count of the co-star graph
+     * @param seed random seed; the same seed gives the same data
+     */
+    public SyntheticGraphs(int numActors, long seed) {
+        Random random = new Random(seed);
+        actors.put("1", "Kevin Bacon");
+        for (int i = 2; i <= numActors; i++) actors.put(String.valueOf(i), "Actor " + i);
+        int numMovies = (int) (numActors * MOVIES_PER_ACTOR);
+        int[] appearances = new int[16];	// one entry per (movie, actor) so far, for picking by popularity
+        int size = 0;
+        for (int m = 1; m <= numMovies; m++) {
+            String id = String.valueOf(m);
+            movies.put(id, "Movie " + m + " (" + (1950 + m % 70) + ")");
+            int castSize = Math.min(numActors, (int) (3 / Math.pow(1 - random.nextDouble(), 1 / 1.5)));
+            Set<String> cast = new HashSet<>();
+            for (int k = 0; k < castSize; k++) {
+                int actor = size > 0 && random.nextDouble() < PREFERENTIAL
+                        ? appearances[random.nextInt(size)] : 1 + random.nextInt(numActors);
+                if (cast.add(String.valueOf(actor))) {
+                    if (size == appearances.length) appearances = Arrays.copyOf(appearances, size * 2);
+                    appearances[size++] = actor;
+                }
+            }
+            movieActors.put(id, cast);
+        }
+    }
+
+    public Map<String, String> getActors() {
+        return actors;
+    }
+
+    public Map<String, String> getMovies() {
+        return movies;
+    }
+
+    public Map<String, Set<String>> getMovieActors() {
+        return movieActors;
+    }
+
+    /** The co-star graph, built the way BaconGame.mainGraph builds it */
+    public Graph<String, Set<String>> graph() {
+        return BaconGame.buildGraph(actors, movies, movieActors);
+    }
+
+    /**
+     * Writes the data as actors.txt, movies.txt and movie-actors.txt in the pipe-separated input format
+     *
+     * @param dir directory to write to, created if missing
+     */
+    public void write(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        writeLinks(new File(dir, "actors.txt"), actors);
+        writeLinks(new File(dir, "movies.txt"), movies);
+        try (Writer out = writer(new File(dir, "movie-actors.txt"))) {
+            for (String movie : sorted(movieActors.keySet())) {
+                for (String actor : sorted(movieActors.get(movie))) out.write(movie + "|" + actor + "\n");
+            }
+        }
+    }
+
+    private static void writeLinks(File file, Map<String, String> links) throws IOException {
+        try (Writer out = writer(file)) {
+            for (String id : sorted(links.keySet())) out.write(id + "|" + links.get(id) + "\n");
+        }
+    }
+
+    private static Writer writer(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /** Numeric IDs in numeric order */
+    private static List<String> sorted(Collection<String> ids) {
+        List<String> list = new ArrayList<>(ids);
+        list.sort(Comparator.comparingInt(Integer::parseInt));
+        return list;
+    }
+
+    /** Writes synthetic input files: SyntheticGraphs [actors] [directory] [seed] */
+    public static void main(String[] args) throws IOException {
+        int numActors = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        File dir = new File(args.length > 1 ? args[1] : "synthetic");
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        new SyntheticGraphs(numActors, seed).write(dir);
+        System.out.println("wrote " + numActors + " actors to " + dir);
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns movie titles as small int ids, so edge labels can hold ids instead of String references
+ * Ids are handed out in order of first appearance and never reused
+ */
+public class TitleTable {
+    private final List<String> titles = new ArrayList<>();	// id -> title
+    private final Map<String, Integer> ids = new HashMap<>();	// title -> id
+
+    /** The id of a title, giving it the next id if it is new */
+    public int intern(String title) {
+        Integer id = ids.get(title);
+        if (id == null) {
+            id = titles.size();
+            ids.put(title, id);
+            titles.add(title);
+        }
+        return id;
+    }
+
+    /** The id of a title, or -1 if it has never been interned */
+    public int id(Object title) {
+        Integer id = ids.get(title);
+        return id == null ? -1 : id;
+    }
+
+    /** The title with the given id */
+    public String title(int id) {
+        return titles.get(id);
+    }
+
+    /** How many distinct titles there are */
+    public int size() {
+        return titles.size();
+    }
+
+    /** An empty label over this table */
+    public MovieSet newLabel() {
+        return new MovieSet(this);
+    }
+}
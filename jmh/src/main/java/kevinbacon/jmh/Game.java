@@ -0,0 +1,83 @@
+package kevinbacon.jmh;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Handles on the game's classes, which live in the default package and so cannot be imported here
+ * (and JMH will not generate benchmarks in the default package)
+ * Every handle takes and returns Object, so the benchmarks call them with invoke
+ */
+final class Game {
+    static final MethodHandle SYNTHETIC = constructor("SyntheticGraphs", int.class, long.class);
+    static final MethodHandle WRITE = method("SyntheticGraphs", "write", File.class);
+    static final MethodHandle MAIN_GRAPH = method("BaconGame", "mainGraphTest", String.class, String.class, String.class);
+    static final MethodHandle CSR_GRAPH = method("BaconGame", "csrGraph", String.class, String.class, String.class);
+    static final MethodHandle BIPARTITE_GRAPH = method("BaconGame", "bipartiteGraph", String.class, String.class, String.class);
+    static final MethodHandle OFF_HEAP_GRAPH = method("BaconGame", "offHeapGraph", String.class, String.class, String.class);
+    static final MethodHandle SNAPSHOT_GRAPH = method("BaconGame", "snapshotGraph", String.class, String.class,
+            String.class, String.class);
+    static final MethodHandle CONCURRENT_GRAPH = constructor("ConcurrentGraph", "Graph");
+    static final MethodHandle INDEXED = method("BaconGame", "indexed", "Graph");
+    static final MethodHandle BFS = method("BaconGame", "bfs", "Graph", Object.class);
+    static final MethodHandle GET_PATH = method("BaconGame", "getPath", "Graph", Object.class);
+    static final MethodHandle HAS_EDGE = method("Graph", "hasEdge", Object.class, Object.class);
+    static final MethodHandle OUT_NEIGHBORS = method("Graph", "outNeighbors", Object.class);
+    static final MethodHandle GET_LABEL = method("Graph", "getLabel", Object.class, Object.class);
+    static final MethodHandle OUT_DEGREE_OF = method("Graph", "outDegreeOf", int.class);
+    static final MethodHandle OUT_NEIGHBOR_AT = method("Graph", "outNeighborAt", int.class, int.class);
+    static final MethodHandle VERTEX_ID = method("Graph", "vertexId", Object.class);
+    static final MethodHandle VERTEX_AT = method("Graph", "vertexAt", int.class);
+    static final MethodHandle VERTEX_ID_BOUND = method("Graph", "vertexIdBound");
+    static final MethodHandle FOR_GRAPH = method("BreadthFirstSearch", "forGraph", "IndexedGraph");
+    static final MethodHandle RUN = method("BreadthFirstSearch", "run", int.class);
+    static final MethodHandle TREE_PATH = method("ShortestPathTree", "getPath", Object.class);
+    static final MethodHandle BIDIRECTIONAL = constructor("BidirectionalSearch", "IndexedGraph");
+    static final MethodHandle FIND = method("BidirectionalSearch", "find", Object.class, Object.class);
+    static final MethodHandle TOP_K = method("ClosenessCentrality", "topK", "IndexedGraph", int.class, int.class);
+    static final MethodHandle BIT_PARALLEL = method("ClosenessCentrality", "averageSeparationsBitParallel", "IndexedGraph",
+            int.class, int.class);
+
+    private Game() {
+    }
+
+    /** A game class by name */
+    private static Class<?> type(Object type) {
+        try {
+            return type instanceof Class ? (Class<?>) type : Class.forName((String) type);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Game classes are not on the class path", e);
+        }
+    }
+
+    /** A public method, static or not, with parameters given as classes or game class names */
+    private static MethodHandle method(String owner, String name, Object... params) {
+        Class<?>[] types = new Class<?>[params.length];
+        for (int i = 0; i < params.length; i++) types[i] = type(params[i]);
+        try {
+            Method method = type(owner).getMethod(name, types);
+            return generic(MethodHandles.publicLookup().unreflect(method));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No " + owner + "." + name, e);
+        }
+    }
+
+    private static MethodHandle constructor(String owner, Object... params) {
+        Class<?>[] types = new Class<?>[params.length];
+        for (int i = 0; i < params.length; i++) types[i] = type(params[i]);
+        try {
+            Constructor<?> constructor = type(owner).getConstructor(types);
+            return generic(MethodHandles.publicLookup().unreflectConstructor(constructor));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No " + owner + " constructor", e);
+        }
+    }
+
+    /** The handle with every reference type erased to Object, primitives kept */
+    private static MethodHandle generic(MethodHandle handle) {
+        return handle.asType(handle.type().erase());
+    }
+}
@@ -0,0 +1,98 @@
+package kevinbacon.jmh;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the graph code on a synthetic scale-free co-star graph: construction, single-source
+ * BFS with each engine and closeness, the same workloads GraphBenchmarks times by hand; basic operations
+ * and path queries per implementation are in GraphOperationBenchmark. Every result is returned, so JMH
+ * consumes it and the JIT cannot drop the work
+ *
+ * Usage: java -jar jmh/target/benchmarks.jar [JMH options], e.g. -p actors=30000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GraphBenchmark {
+    @Param("3000")
+    public int actors;
+
+    private File dir;
+    private String actorFile, movieFile, castFile;
+    private Object map, csr, bipartite;			// the same graph as AdjacencyMapGraph, CsrGraph, BipartiteGraph
+    private Object csrSearch, bipartiteSearch;	// BFS engines with their buffers
+    private Object center;				// Kevin Bacon
+    private int csrCenter, bipartiteCenter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        dir = Files.createTempDirectory("kevinbacon-jmh").toFile();
+        Game.WRITE.invoke(Game.SYNTHETIC.invoke(actors, 42L), dir);
+        actorFile = new File(dir, "actors.txt").getPath();
+        movieFile = new File(dir, "movies.txt").getPath();
+        castFile = new File(dir, "movie-actors.txt").getPath();
+        map = Game.MAIN_GRAPH.invoke(actorFile, movieFile, castFile);
+        csr = Game.CSR_GRAPH.invoke(actorFile, movieFile, castFile);
+        bipartite = Game.BIPARTITE_GRAPH.invoke(actorFile, movieFile, castFile);
+        csrSearch = Game.FOR_GRAPH.invoke(csr);
+        bipartiteSearch = Game.FOR_GRAPH.invoke(bipartite);
+        center = "Kevin Bacon";	// always generated
+        csrCenter = (int) Game.VERTEX_ID.invoke(csr, center);
+        bipartiteCenter = (int) Game.VERTEX_ID.invoke(bipartite, center);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        File[] files = dir.listFiles();
+        if (files != null) for (File file : files) Files.delete(file.toPath());
+        Files.delete(dir.toPath());
+    }
+
+    @Benchmark
+    public Object constructAdjacencyMapGraph() throws Throwable {
+        return Game.MAIN_GRAPH.invoke(actorFile, movieFile, castFile);
+    }
+
+    @Benchmark
+    public Object constructCsrGraph() throws Throwable {
+        return Game.CSR_GRAPH.invoke(actorFile, movieFile, castFile);
+    }
+
+    @Benchmark
+    public Object constructBipartiteGraph() throws Throwable {
+        return Game.BIPARTITE_GRAPH.invoke(actorFile, movieFile, castFile);
+    }
+
+    @Benchmark
+    public Object bfsBaconGame() throws Throwable {
+        return Game.BFS.invoke(map, center);
+    }
+
+    @Benchmark
+    public Object bfsCsrGraph() throws Throwable {
+        return Game.RUN.invoke(csrSearch, csrCenter);
+    }
+
+    @Benchmark
+    public Object bfsBipartiteGraph() throws Throwable {
+        return Game.RUN.invoke(bipartiteSearch, bipartiteCenter);
+    }
+
+    @Benchmark
+    public Object closenessTopK() throws Throwable {
+        return Game.TOP_K.invoke(csr, csrCenter, 10);
+    }
+
+    @Benchmark
+    public Object closenessBitParallel() throws Throwable {
+        return Game.BIT_PARALLEL.invoke(csr, -1, 1);
+    }
+}
@@ -0,0 +1,134 @@
+package kevinbacon.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks comparing the Graph implementations side by side on the same synthetic co-star graph:
+ * the basic operations (hasEdge, outNeighbors, getLabel) and path queries, by reconstruction from a
+ * BaconGame.bfs tree and from a ShortestPathTree, and by BidirectionalSearch
+ * ShortestPathTree and BidirectionalSearch need int ids, so graphs without them are searched through
+ * their BaconGame.indexed copy, as the game does
+ *
+ * Usage: java -jar jmh/target/benchmarks.jar GraphOperationBenchmark [-p graph=MappedGraph,OffHeapGraph]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GraphOperationBenchmark {
+    private static final int SAMPLES = 1024;	// query vertices, cycled through; a power of two
+
+    @Param("3000")
+    public int actors;
+
+    @Param({"AdjacencyMapGraph", "CsrGraph", "BipartiteGraph", "MappedGraph", "OffHeapGraph", "ConcurrentGraph"})
+    public String graph;
+
+    private File dir;
+    private Object g, indexed;		// the graph under test, and it or its indexed copy
+    private Object center, far;		// Kevin Bacon, and the last vertex a search from him reaches
+    private Object bfsTree, tree, bidirectional;
+    private final Object[] from = new Object[SAMPLES], costar = new Object[SAMPLES], other = new Object[SAMPLES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        dir = Files.createTempDirectory("kevinbacon-jmh").toFile();
+        Game.WRITE.invoke(Game.SYNTHETIC.invoke(actors, 42L), dir);
+        String actorFile = new File(dir, "actors.txt").getPath();
+        String movieFile = new File(dir, "movies.txt").getPath();
+        String castFile = new File(dir, "movie-actors.txt").getPath();
+        switch (graph) {
+            case "AdjacencyMapGraph": g = Game.MAIN_GRAPH.invoke(actorFile, movieFile, castFile); break;
+            case "CsrGraph": g = Game.CSR_GRAPH.invoke(actorFile, movieFile, castFile); break;
+            case "BipartiteGraph": g = Game.BIPARTITE_GRAPH.invoke(actorFile, movieFile, castFile); break;
+            case "MappedGraph":
+                g = Game.SNAPSHOT_GRAPH.invoke(new File(dir, "graph.snapshot").getPath(), actorFile, movieFile, castFile);
+                break;
+            case "OffHeapGraph": g = Game.OFF_HEAP_GRAPH.invoke(actorFile, movieFile, castFile); break;
+            case "ConcurrentGraph":
+                g = Game.CONCURRENT_GRAPH.invoke(Game.MAIN_GRAPH.invoke(actorFile, movieFile, castFile));
+                break;
+            default: throw new IllegalArgumentException("Unknown graph " + graph);
+        }
+        indexed = Game.INDEXED.invoke(g);
+        center = "Kevin Bacon";	// always generated
+        bfsTree = Game.BFS.invoke(g, center);
+        far = Game.VERTEX_AT.invoke(bfsTree, (int) Game.VERTEX_ID_BOUND.invoke(bfsTree) - 1);	// tree ids are in BFS order
+        tree = Game.RUN.invoke(Game.FOR_GRAPH.invoke(indexed), (int) Game.VERTEX_ID.invoke(indexed, center));
+        bidirectional = Game.BIDIRECTIONAL.invoke(indexed);
+
+        // random actors with co-stars, one co-star of each, and another random actor, mostly not a co-star
+        Random random = new Random(42);
+        int n = (int) Game.VERTEX_ID_BOUND.invoke(indexed);
+        for (int i = 0; i < SAMPLES; ) {
+            int u = random.nextInt(n), degree = (int) Game.OUT_DEGREE_OF.invoke(indexed, u);
+            if (degree == 0) continue;
+            from[i] = Game.VERTEX_AT.invoke(indexed, u);
+            costar[i] = Game.VERTEX_AT.invoke(indexed, (int) Game.OUT_NEIGHBOR_AT.invoke(indexed, u, random.nextInt(degree)));
+            other[i++] = Game.VERTEX_AT.invoke(indexed, random.nextInt(n));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        File[] files = dir.listFiles();
+        if (files != null) for (File file : files) Files.delete(file.toPath());
+        Files.delete(dir.toPath());
+    }
+
+    /** Index of the next query vertex */
+    private int next() {
+        return next = (next + 1) & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public boolean hasEdgeCostar() throws Throwable {
+        int i = next();
+        return (boolean) Game.HAS_EDGE.invoke(g, from[i], costar[i]);
+    }
+
+    @Benchmark
+    public boolean hasEdgeOther() throws Throwable {
+        int i = next();
+        return (boolean) Game.HAS_EDGE.invoke(g, from[i], other[i]);
+    }
+
+    @Benchmark
+    public void outNeighbors(Blackhole bh) throws Throwable {
+        for (Object w : (Iterable<?>) Game.OUT_NEIGHBORS.invoke(g, from[next()])) bh.consume(w);
+    }
+
+    @Benchmark
+    public Object getLabel() throws Throwable {
+        int i = next();
+        return Game.GET_LABEL.invoke(g, from[i], costar[i]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object pathBaconGame() throws Throwable {
+        return Game.GET_PATH.invoke(bfsTree, far);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object pathShortestPathTree() throws Throwable {
+        return Game.TREE_PATH.invoke(tree, far);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object pathBidirectional() throws Throwable {
+        return Game.FIND.invoke(bidirectional, center, far);
+    }
+}